@@ -23,6 +23,7 @@ public class AnalyzePopup implements ActionListener, PropertyChangeListener, Win
 	private JProgressBar progressBar; // Progress bar
 
 	private AnalyzeWorker analyzeWorker; // Worker thread
+	private JobScheduler.Job analyzeJob; // The analyze worker's place in the scheduler
 	private boolean workerBusy; // Is the worker busy?
 
 	public AnalyzePopup() {
@@ -124,11 +125,13 @@ public class AnalyzePopup implements ActionListener, PropertyChangeListener, Win
 				try {
 					analyzeWorker = new AnalyzeWorker(hostImagePath); // Create a worker thread for analysis
 					analyzeWorker.addPropertyChangeListener(this);
+					analyzeJob = Steganographer.getScheduler().submit(analyzeWorker, JobScheduler.PRIORITY_LOW, analyzeWorker.getMemoryEstimate()); // Waits behind any encode or decode
 					workerBusy = true;
 					statusText.setText("Analyzing...");
-					analyzeWorker.execute();
 				} catch (IOException e) {
 					JOptionPane.showMessageDialog(null, "Invalid host image path.");
+				} catch (InsufficientMemoryException e) {
+					JOptionPane.showMessageDialog(null, "Not enough memory to analyze this image.");
 				}
 			} else {
 				printBusyMessage();
@@ -149,6 +152,16 @@ public class AnalyzePopup implements ActionListener, PropertyChangeListener, Win
 	}
 
 	public void propertyChange(PropertyChangeEvent event) {
+		if (event.getNewValue() == SwingWorker.StateValue.DONE && workerBusy && !analyzeWorker.isCancelled()) {
+			try {
+				analyzeWorker.get(); // Finished analyses are handled once their progress reaches 100
+			} catch (ExecutionException | InterruptedException e) {
+				workerBusy = false;
+				progressBar.setString("Operation Failed!");
+				statusText.setText(e.getCause() instanceof IOException ? "Invalid host image path." : "Internal error: Something unusual went wrong...");
+			}
+			return;
+		}
 		try {
 			int progress = (Integer) event.getNewValue();
 			progressBar.setValue(progress);
@@ -205,8 +218,8 @@ public class AnalyzePopup implements ActionListener, PropertyChangeListener, Win
 	}
 
 	private void exit() {
-		if(analyzeWorker != null && !analyzeWorker.isDone()) {
-			analyzeWorker.cancel(true);
+		if(analyzeJob != null && !analyzeJob.isDone()) {
+			analyzeJob.cancel(); // Also drops it from the queue if it has not started
 		}
 		window.setVisible(false);
 		window.dispose();
@@ -1,31 +1,62 @@
 import javax.imageio.IIOException;
 import javax.swing.SwingWorker;
+import java.awt.Dimension;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 // By: Justin Spedding & Andrew Miller
 
 public class AnalyzeWorker extends SwingWorker<Boolean, Void> {
 
+	private String hostImagePath; // Remembered until the host image is loaded
+	private long memoryEstimate; // The most bytes the analysis is expected to use at once
 	private SegmentedAnalyzer analyzer;
-	private int currentSegment;
 
+	/**
+	 * Constructs a worker that loads and analyzes the host image once it runs
+	 * Only the header of the host image is read here, to estimate the memory the analysis needs.
+	 *
+	 * @param hostImagePath
+	 * 			The path to the host image
+	 * @throws IOException
+	 * 			Throws if the host image cannot be read or is not an image
+	 */
 	public AnalyzeWorker(String hostImagePath) throws FileNotFoundException, IOException, IIOException {
-		this.analyzer = new SegmentedAnalyzer(hostImagePath);
-		currentSegment = 0;
+		this.hostImagePath = hostImagePath;
+		Dimension size = HostRaster.readSize(new File(hostImagePath));
+		memoryEstimate = SegmentedAnalyzer.estimatePeakMemoryUsage(size.width, size.height, ForkJoinPool.commonPool(), getCounterBudget());
 	}
 
 	public Boolean doInBackground() throws IOException, IIOException, NoSuchSegmentException {
-		while (analyzer.hasNext() && !isCancelled()) {
-			setProgress((currentSegment * 100) / analyzer.getTotalSegments());
-			analyzer.nextSegment();
-			currentSegment++;
+		analyzer = new SegmentedAnalyzer(hostImagePath, ForkJoinPool.commonPool(), getCounterBudget());
+		try {
+			while (analyzer.hasNext() && !isCancelled()) {
+				setProgress(analyzer.getProgress()); // Segments are sized by time, so how many there are is not known up front
+				analyzer.nextSegment();
+			}
+		} finally {
+			analyzer.close(); // Only does anything if the host image is still loaded because the analysis was cancelled or failed
 		}
 		setProgress(100);
 		return analyzer.getValue();
 	}
 
+	/**
+	 * Returns the most bytes the worker is expected to use at once, for the job scheduler
+	 *
+	 * @return The memory estimate in bytes
+	 */
+	public long getMemoryEstimate() {
+		return memoryEstimate;
+	}
+
+	private static long getCounterBudget() {
+		return Runtime.getRuntime().maxMemory() / 4;
+	}
+
 	public void done() {
 
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,204 @@
+// By: Justin Spedding & Andrew Miller
+
+public class BitPlanes {
+
+	public static final int PLANES = 21; // The number of (color, bit) planes, ordered bit by bit and color by color within each bit
+
+	private static final Class<?> vectorKernel = findVectorKernel(); // The Vector API kernel, or null if it cannot run here
+
+	private int width; // The width of the image
+	private int height; // The height of the image
+	private int wordsPerRow; // The number of longs that hold one row of a plane
+	private long[][] planes; // One bit per pixel for each plane, row after row, lowest bit first within each long
+	private int[] rgbRow; // The colors of the row being extracted, padded to whole words so every block is full
+	private Kernel kernel; // Turns the colors of a row into the bits of every plane
+
+	/**
+	 * Extracts the planes of a row of pixels, a word of 64 pixels at a time
+	 */
+	interface Kernel {
+
+		/**
+		 * Extracts the planes of the whole words of a row
+		 *
+		 * @param rgbRow
+		 * 			The colors of the row, padded to whole words
+		 * @param words
+		 * 			The number of words in the row
+		 * @param planes
+		 * 			The planes to fill in
+		 * @param index
+		 * 			The index of the row's first word in each plane
+		 */
+		void extractRow(int[] rgbRow, int words, long[][] planes, int index);
+	}
+
+	private static class ScalarKernel implements Kernel { // Works on any JVM
+
+		private int[] block = new int[32]; // The 32 pixels being transposed
+
+		public void extractRow(int[] rgbRow, int words, long[][] planes, int index) {
+			for (int word = 0; word < words; word++) { // Transpose 32 pixels by 32 bits at a time instead of testing every bit
+				transposeBlock(rgbRow, word * 64, planes, index + word, 0);
+				transposeBlock(rgbRow, word * 64 + 32, planes, index + word, 32);
+			}
+		}
+
+		private void transposeBlock(int[] rgbRow, int start, long[][] planes, int index, int offset) {
+			for (int i = 0; i < 32; i++) {
+				block[31 - i] = rgbRow[start + i]; // Reversed so the first pixel ends up in the lowest bit
+			}
+			for (int j = 16, mask = 0x0000FFFF; j != 0; j >>>= 1, mask ^= mask << j) { // Swap ever smaller blocks of bits across the diagonal
+				for (int k = 0; k < 32; k = ((k | j) + 1) & ~j) {
+					int t = (block[k] ^ (block[k | j] >>> j)) & mask;
+					block[k] ^= t;
+					block[k | j] ^= t << j;
+				}
+			}
+			for (int plane = 0; plane < PLANES; plane++) { // Bit b of every pixel is now in block[31 - b]
+				planes[plane][index] |= (block[31 - getShift(plane)] & 0xFFFFFFFFL) << offset;
+			}
+		}
+	}
+
+	/**
+	 * Extracts every plane of an image in a single pass over its pixels
+	 * The rows are fetched in order, so a tiled raster only decodes each tile once.
+	 *
+	 * @param raster
+	 * 			The pixels of the image to extract the planes of
+	 */
+	public BitPlanes(HostRaster raster) {
+		this(raster.getWidth(), raster.getHeight());
+		extractRows(raster, 0, height);
+	}
+
+	/**
+	 * Constructs empty planes for an image, to be filled in a few rows at a time by extractRows()
+	 *
+	 * @param width
+	 * 			The width of the image
+	 * @param height
+	 * 			The height of the image
+	 */
+	public BitPlanes(int width, int height) {
+		this.width = width;
+		this.height = height;
+		wordsPerRow = (width + 63) / 64;
+		planes = new long[PLANES][height * wordsPerRow];
+		rgbRow = new int[(width + 63) & ~63];
+		kernel = createKernel();
+	}
+
+	/**
+	 * Extracts every plane of some rows of an image
+	 * Extracting the rows in order means a tiled raster only decodes each tile once.
+	 *
+	 * @param raster
+	 * 			The pixels of the image to extract the planes of
+	 * @param start
+	 * 			The first row to extract
+	 * @param end
+	 * 			The row after the last row to extract
+	 */
+	public void extractRows(HostRaster raster, int start, int end) {
+		for (int y = start; y < end; y++) {
+			raster.getRow(y, rgbRow); // Each pixel is fetched only once
+			kernel.extractRow(rgbRow, wordsPerRow, planes, y * wordsPerRow);
+		}
+	}
+
+	private static Class<?> findVectorKernel() {
+		try {
+			Class<?> kernelClass = Class.forName("VectorBitPlanes"); // Only built by the vector profile
+			kernelClass.getDeclaredConstructor().newInstance(); // Fails without --add-modules jdk.incubator.vector, or without wide enough vectors
+			return kernelClass;
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static Kernel createKernel() {
+		if (vectorKernel != null) {
+			try {
+				return (Kernel) vectorKernel.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				// It was made once already, so this cannot happen
+			}
+		}
+		return new ScalarKernel();
+	}
+
+	/**
+	 * Returns whether the planes are extracted with the Vector API
+	 * It is only used when the program was built with the vector profile and runs with
+	 * --add-modules jdk.incubator.vector, and the scalar kernel extracts exactly the same bits otherwise.
+	 *
+	 * @return True if the Vector API kernel is used, false if the scalar one is
+	 */
+	public static boolean isVectorized() {
+		return vectorKernel != null;
+	}
+
+	/**
+	 * Returns how far a plane's bit is shifted within a packed RGB int
+	 *
+	 * @param plane
+	 * 			The plane, from 0 to PLANES - 1
+	 * @return The number of bits to shift a packed RGB int right by to get the plane's bit
+	 */
+	public static int getShift(int plane) {
+		return (plane % 3) * 8 + plane / 3;
+	}
+
+	/**
+	 * Returns how many bytes the planes of an image take up
+	 *
+	 * @param width
+	 * 			The width of the image
+	 * @param height
+	 * 			The height of the image
+	 * @return The memory used by the planes in bytes
+	 */
+	public static long getMemoryUsage(int width, int height) {
+		return 8L * PLANES * height * ((width + 63) / 64);
+	}
+
+	/**
+	 * Returns the packed bits of a plane
+	 *
+	 * @param plane
+	 * 			The plane, from 0 to PLANES - 1
+	 * @return The bits of the plane, getWordsPerRow() longs per row
+	 */
+	public long[] getPlane(int plane) {
+		return planes[plane];
+	}
+
+	/**
+	 * Returns the number of longs that hold one row of a plane
+	 *
+	 * @return The number of longs per row
+	 */
+	public int getWordsPerRow() {
+		return wordsPerRow;
+	}
+
+	/**
+	 * Returns the width of the image
+	 *
+	 * @return The width of the image
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the image
+	 *
+	 * @return The height of the image
+	 */
+	public int getHeight() {
+		return height;
+	}
+}
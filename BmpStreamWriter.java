@@ -0,0 +1,77 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+// By: Justin Spedding & Andrew Miller
+
+public class BmpStreamWriter {
+
+	private static final int HEADER_SIZE = 54; // The file header and the BITMAPINFOHEADER
+	private static final int BUFFER_SIZE = 1 << 22; // The number of bytes written at a time
+
+	/**
+	 * Writes a raster to a 24 bit BMP file one row at a time, so the image never has to fit in a BufferedImage
+	 * Rows are stored top-down, and the size fields are left at 0 when they do not fit, as the format allows.
+	 *
+	 * @param raster
+	 * 			The raster to write
+	 * @param file
+	 * 			The file to write
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 */
+	public static void write(HostRaster raster, File file) throws IOException {
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		int rowBytes = (width * 3 + 3) & ~3; // Rows are padded to a multiple of 4 bytes
+		long imageBytes = (long) rowBytes * height;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, HEADER_SIZE + rowBytes)).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put((byte) 'B').put((byte) 'M');
+		buffer.putInt(toUnsignedInt(HEADER_SIZE + imageBytes)); // The size of the file
+		buffer.putInt(0); // Reserved
+		buffer.putInt(HEADER_SIZE); // Where the pixels start
+		buffer.putInt(40); // The size of the BITMAPINFOHEADER
+		buffer.putInt(width);
+		buffer.putInt(-height); // Negative for top-down rows
+		buffer.putShort((short) 1); // Planes
+		buffer.putShort((short) 24); // Bits per pixel
+		buffer.putInt(0); // BI_RGB
+		buffer.putInt(toUnsignedInt(imageBytes));
+		buffer.putInt(2835).putInt(2835); // 72 DPI
+		buffer.putInt(0).putInt(0); // No palette
+		try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+			output.setLength(0);
+			FileChannel channel = output.getChannel();
+			int[] rgbRow = new int[width];
+			for (int y = 0; y < height; y++) {
+				if (buffer.remaining() < rowBytes) {
+					flush(channel, buffer);
+				}
+				raster.getRow(y, rgbRow);
+				for (int x = 0; x < width; x++) {
+					int rgb = rgbRow[x];
+					buffer.put((byte) rgb).put((byte) (rgb >>> 8)).put((byte) (rgb >>> 16)); // Blue, green, red
+				}
+				for (int i = width * 3; i < rowBytes; i++) {
+					buffer.put((byte) 0);
+				}
+			}
+			flush(channel, buffer);
+		}
+	}
+
+	private static int toUnsignedInt(long value) {
+		return value > 0xFFFFFFFFL ? 0 : (int) value;
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,224 @@
+import java.util.Arrays;
+
+// By: Justin Spedding & Andrew Miller
+
+public class ChunkCounter {
+
+	private int width; // The number of pixels in each row
+	private int rows; // The number of rows added so far
+	private int chunkCount; // The number of chunks found so far
+	private int firstRuns, previousRuns, currentRuns; // The number of runs in the first, previous and current rows
+	private int[] firstStarts, firstEnds, firstValues; // The runs of the first row, which keep their labels so they can be merged with other counters
+	private int[] previousStarts, previousEnds, previousValues, previousLabels; // The runs of the previous row
+	private int[] currentStarts, currentEnds, currentValues, currentLabels; // The runs of the current row
+	private int[] parents; // Union-find forest, first row labels are below width, previous row labels below twice the width, current row labels above that
+	private int[] relabels; // Maps the root of each chunk that reaches the current row to its label in the next row
+
+	/**
+	 * Constructs a counter for the 4-connected chunks of equal bits in a plane that is fed in one row at a time
+	 * Only the first row and the last two rows of runs are kept, so memory does not depend on the height of the plane.
+	 *
+	 * @param width
+	 * 			The number of pixels in each row
+	 */
+	public ChunkCounter(int width) {
+		this.width = width;
+		firstStarts = new int[width];
+		firstEnds = new int[width];
+		firstValues = new int[width];
+		previousStarts = new int[width];
+		previousEnds = new int[width];
+		previousValues = new int[width];
+		previousLabels = new int[width];
+		currentStarts = new int[width];
+		currentEnds = new int[width];
+		currentValues = new int[width];
+		currentLabels = new int[width];
+		parents = new int[width * 3];
+		relabels = new int[width * 3];
+		Arrays.fill(relabels, -1);
+		reset();
+	}
+
+	/**
+	 * Returns how many bytes of working memory a counter for a plane of a given width holds on to
+	 *
+	 * @param width
+	 * 			The number of pixels in each row
+	 * @return The memory used by the counter in bytes
+	 */
+	public static long getMemoryUsage(int width) {
+		return 68L * width; // Eleven int arrays of the width and two of three times the width
+	}
+
+	/**
+	 * Forgets every row so the counter can be reused for another plane of the same width
+	 */
+	public void reset() {
+		rows = 0;
+		chunkCount = 0;
+		firstRuns = 0;
+		previousRuns = 0;
+		currentRuns = 0;
+	}
+
+	/**
+	 * Adds the next row of the plane from packed bits
+	 *
+	 * @param words
+	 * 			The packed bits of the plane, lowest bit first within each long
+	 * @param offset
+	 * 			The index of the long that holds the first pixel of the row
+	 */
+	public void addRow(long[] words, int offset) {
+		currentRuns = 0;
+		long carry = 0; // The last bit of the previous word
+		for (int base = 0; base < width; base += 64) {
+			long bits = words[offset + (base >>> 6)];
+			long changes = bits ^ ((bits << 1) | carry); // Set wherever a bit differs from the one before it
+			if (base == 0) {
+				changes |= 1; // The row always starts a run
+			}
+			if (width - base < 64) {
+				changes &= (1L << (width - base)) - 1; // Ignore the padding past the end of the row
+			}
+			while (changes != 0) { // Start a run at every change
+				int bit = Long.numberOfTrailingZeros(changes);
+				if (currentRuns > 0) {
+					currentEnds[currentRuns - 1] = base + bit;
+				}
+				currentStarts[currentRuns] = base + bit;
+				currentValues[currentRuns] = (int) (bits >>> bit) & 1;
+				currentRuns++;
+				changes &= changes - 1;
+			}
+			carry = bits >>> 63;
+		}
+		currentEnds[currentRuns - 1] = width;
+		addRuns();
+	}
+
+	private void addRuns() {
+		for (int i = 0; i < currentRuns; i++) { // Every run starts out as a new chunk
+			int label = rows == 0 ? i : width * 2 + i;
+			parents[label] = label;
+			currentLabels[i] = label;
+			chunkCount++;
+		}
+		if (rows == 0) { // Keep the first row for merging with the counter above this one
+			System.arraycopy(currentStarts, 0, firstStarts, 0, currentRuns);
+			System.arraycopy(currentEnds, 0, firstEnds, 0, currentRuns);
+			System.arraycopy(currentValues, 0, firstValues, 0, currentRuns);
+			firstRuns = currentRuns;
+		}
+		chunkCount -= merge(previousStarts, previousEnds, previousValues, previousLabels, previousRuns, currentStarts, currentEnds, currentValues, currentLabels, currentRuns, parents, 0, 0);
+		relabel();
+		rows++;
+	}
+
+	private void relabel() {
+		for (int i = 0; i < currentRuns; i++) { // Resolve every root before any label changes
+			currentLabels[i] = find(parents, currentLabels[i]);
+		}
+		int labels = 0;
+		for (int i = 0; i < currentRuns; i++) { // Give the chunks that reach this row small labels again
+			int root = currentLabels[i];
+			if (root < width) { // Chunks that reach the first row keep its labels
+				previousLabels[i] = root;
+			} else {
+				if (relabels[root] < 0) {
+					relabels[root] = width + labels++;
+				}
+				previousLabels[i] = relabels[root]; // The previous row's labels are no longer needed
+			}
+		}
+		for (int i = 0; i < currentRuns; i++) {
+			relabels[currentLabels[i]] = -1;
+		}
+		for (int i = width; i < width + labels; i++) {
+			parents[i] = i;
+		}
+		int[] temp = previousStarts; // Swap rows
+		previousStarts = currentStarts;
+		currentStarts = temp;
+		temp = previousEnds;
+		previousEnds = currentEnds;
+		currentEnds = temp;
+		temp = previousValues;
+		previousValues = currentValues;
+		currentValues = temp;
+		previousRuns = currentRuns;
+	}
+
+	/**
+	 * Merges the chunks that touch across the border between the last row of one counter and the first row of the next
+	 * The labels of both counters are offset into a shared union-find forest, which must hold twice the width for
+	 * each counter and start out with every label as its own root.
+	 *
+	 * @param above
+	 * 			The counter that was fed the rows just above the border
+	 * @param below
+	 * 			The counter that was fed the rows just below the border
+	 * @param parents
+	 * 			The shared union-find forest
+	 * @param aboveOffset
+	 * 			Where the labels of the counter above start in the forest
+	 * @param belowOffset
+	 * 			Where the labels of the counter below start in the forest
+	 * @return The number of chunks that turned out to be the same as another chunk
+	 */
+	public static int mergeBorder(ChunkCounter above, ChunkCounter below, int[] parents, int aboveOffset, int belowOffset) {
+		int[] firstLabels = below.currentLabels; // Free until the counter is fed another row
+		for (int i = 0; i < below.firstRuns; i++) {
+			firstLabels[i] = find(below.parents, i); // Chunks that reach the first row are rooted in it
+		}
+		return merge(above.previousStarts, above.previousEnds, above.previousValues, above.previousLabels, above.previousRuns, below.firstStarts, below.firstEnds, below.firstValues, firstLabels, below.firstRuns, parents, aboveOffset, belowOffset);
+	}
+
+	private static int merge(int[] upperStarts, int[] upperEnds, int[] upperValues, int[] upperLabels, int upperRuns, int[] lowerStarts, int[] lowerEnds, int[] lowerValues, int[] lowerLabels, int lowerRuns, int[] parents, int upperOffset, int lowerOffset) {
+		int merges = 0;
+		int first = 0; // The first upper run that can still touch the lower run
+		for (int i = 0; i < lowerRuns; i++) { // Merge with every touching upper run of the same bit
+			while (first < upperRuns && upperEnds[first] <= lowerStarts[i]) {
+				first++;
+			}
+			for (int j = first; j < upperRuns && upperStarts[j] < lowerEnds[i]; j++) {
+				if (upperValues[j] == lowerValues[i] && union(parents, lowerLabels[i] + lowerOffset, upperLabels[j] + upperOffset)) {
+					merges++; // Two chunks turned out to be one
+				}
+			}
+		}
+		return merges;
+	}
+
+	private static int find(int[] parents, int label) {
+		while (parents[label] != label) {
+			parents[label] = parents[parents[label]]; // Path halving
+			label = parents[label];
+		}
+		return label;
+	}
+
+	private static boolean union(int[] parents, int a, int b) {
+		a = find(parents, a);
+		b = find(parents, b);
+		if (a == b) {
+			return false;
+		}
+		if (a < b) { // The lower label stays the root, so chunks that reach the first row stay rooted in it
+			parents[b] = a;
+		} else {
+			parents[a] = b;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of chunks in the rows added so far
+	 *
+	 * @return The number of chunks
+	 */
+	public int getChunkCount() {
+		return chunkCount;
+	}
+}
@@ -0,0 +1,123 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// By: Justin Spedding & Andrew Miller
+
+public enum Codec {
+
+	NONE(0, "None"), // The stego is stored as is
+	DEFLATE(1, "Deflate"), // The stego is compressed with zlib at the chosen level
+	LZ(2, "Fast LZ"); // The stego is compressed with a fast LZ77 codec that trades ratio for speed
+
+	private static final int BUFFER_SIZE = 1 << 16; // The number of bytes compressed or decompressed at a time
+
+	private int id; // The id stored in stego headers, which must never change
+	private String description; // The name shown to the user
+
+	private Codec(int id, String description) {
+		this.id = id;
+		this.description = description;
+	}
+
+	/**
+	 * Returns the codec with an id stored in a stego header
+	 *
+	 * @param id
+	 * 			The id of the codec
+	 * @return The codec, or null if this version does not know the id
+	 */
+	public static Codec forId(int id) {
+		for (Codec codec : values()) {
+			if (codec.id == id) {
+				return codec;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the id stored in stego headers for this codec
+	 *
+	 * @return The id of the codec
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the most bytes that a stego can take up once stored with this codec
+	 *
+	 * @param length
+	 * 			The number of bytes in the stego
+	 * @return The largest possible stored size
+	 */
+	public long getMaxSize(long length) {
+		if (this == DEFLATE) {
+			return length + (length >> 12) + (length >> 14) + (length >> 25) + 13 + 6; // zlib's bound plus its header and checksum
+		} else if (this == LZ) {
+			return LzOutputStream.getMaxSize(length);
+		}
+		return length;
+	}
+
+	/**
+	 * Wraps a stream so that everything written to it is compressed with this codec
+	 * Closing the returned stream writes the end of the compressed data and closes the wrapped stream.
+	 *
+	 * @param out
+	 * 			The stream to write the compressed bytes to
+	 * @param level
+	 * 			The Deflate compression level, from 1 to 9, which other codecs ignore
+	 * @return The stream to write the stego to
+	 */
+	public OutputStream compress(OutputStream out, int level) {
+		if (this == DEFLATE) {
+			Deflater deflater = new Deflater(level);
+			return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						deflater.end(); // Free the native memory now instead of whenever it is collected
+					}
+				}
+			};
+		} else if (this == LZ) {
+			return new LzOutputStream(out);
+		}
+		return out;
+	}
+
+	/**
+	 * Wraps a stream so that what this codec compressed is read back decompressed
+	 *
+	 * @param in
+	 * 			The stream to read the compressed bytes from
+	 * @return The stream to read the stego from
+	 */
+	public InputStream decompress(InputStream in) {
+		if (this == DEFLATE) {
+			return new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						inf.end(); // Free the native memory now instead of whenever it is collected
+					}
+				}
+			};
+		} else if (this == LZ) {
+			return new LzInputStream(in);
+		}
+		return in;
+	}
+
+	public String toString() {
+		return description;
+	}
+}
@@ -3,9 +3,8 @@ import java.awt.*;
 import java.awt.event.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.io.File;
 import java.io.IOException;
-import javax.imageio.ImageIO;
+import java.util.concurrent.ExecutionException;
 
 // By: Justin Spedding & Andrew Miller
 
@@ -21,7 +20,10 @@ public class DecodePopup implements ActionListener, PropertyChangeListener, Wind
 	private JLabel statusText; // Status label
 	private JProgressBar progressBar; // Progress bar
 
+	private ProbeWorker probeWorker; // Loads the host image and its info off the event dispatch thread
+	private JobScheduler.Job probeJob; // The probe worker's place in the scheduler
 	private DecodeWorker decodeWorker; // Worker thread
+	private JobScheduler.Job decodeJob; // The decode worker's place in the scheduler
 	private boolean usePassword; // Should the password be used?
 	private boolean workerBusy; // Is the worker busy?
 
@@ -130,30 +132,52 @@ public class DecodePopup implements ActionListener, PropertyChangeListener, Wind
 		workerBusy = false;
 	}
 
-	private void updateStatus() {
+	private void updateFields() {
+		hostImagePath = hostImageText.getText(); // Update the host image path
 		outputDirPath = outputDirText.getText(); // Update the output directory path
-		if (!hostImageText.getText().equals(hostImagePath) || !passwordText.getText().equals(password)) {
-			hostImagePath = hostImageText.getText(); // Update the host image path
-			try {
-				hostImage.loadImage(ImageIO.read(new File(hostImagePath)));
-			} catch (IOException e) {
-				hostImage.loadText("Invalid host image path.");
-			}
-		}
 		usePassword = passwordCheckBox.isSelected(); // Update the password usage
 		if (usePassword) {
 			password = passwordText.getText(); // Update the password if it is being used
 		} else {
 			password = ""; // Clear the password if it is not being used
 		}
-		if (hostImage.isImage()) {
-			try {
-				statusText.setText(Steganographer.getInfo(hostImage.getImage(), password)); // Load the info about hidden messages inside the image
-			} catch (ImageOverflowException e) {
+	}
+
+	private void updateStatus() {
+		updateFields();
+		if (probeJob != null && !probeJob.isDone()) {
+			probeJob.cancel(); // Its image or password is out of date
+		}
+		try {
+			probeWorker = new ProbeWorker(hostImagePath, password); // Load the image and the info about hidden messages inside it in the background
+			probeWorker.addPropertyChangeListener(this);
+			probeJob = Steganographer.getScheduler().submit(probeWorker, JobScheduler.PRIORITY_NORMAL, probeWorker.getMemoryEstimate());
+			hostImage.loadText("Loading...");
+			statusText.setText("Looking for a stego...");
+		} catch (IOException e) {
+			probeWorker = null;
+			hostImage.loadText("Invalid host image path.");
+			statusText.setText("Invalid host image path.");
+		} catch (InsufficientMemoryException e) {
+			probeWorker = null;
+			hostImage.loadText("Not enough memory to load this image.");
+			statusText.setText("Not enough memory to load this image.");
+		}
+	}
+
+	private void probeDone() {
+		try {
+			statusText.setText(probeWorker.get());
+			hostImage.loadImage(probeWorker.getPreview());
+		} catch (ExecutionException e) {
+			hostImage.loadText("Invalid host image path.");
+			if (e.getCause() instanceof ImageOverflowException) {
 				statusText.setText("Internal error: Image overflow.");
+			} else {
+				statusText.setText("Invalid host image path.");
 			}
-		} else {
-			statusText.setText("Invalid host image path.");
+		} catch (InterruptedException e) {
+			// Do nothing
 		}
 	}
 
@@ -167,21 +191,18 @@ public class DecodePopup implements ActionListener, PropertyChangeListener, Wind
 			}
 		} else if (obj.equals(decodeButton)) {
 			if (!workerBusy) {
-				updateStatus();
+				updateFields();
 				if (Steganographer.checkOutputDirPath(outputDirPath)) {
 					try {
-						decodeWorker = new DecodeWorker(hostImagePath, outputDirPath, password); // Create a worker thread for decoding
+						decodeWorker = new DecodeWorker(hostImagePath, outputDirPath, password); // Create a worker thread for decoding, which loads the host image once it runs
 						decodeWorker.addPropertyChangeListener(this);
-						Steganographer.addWorker();
+						decodeJob = Steganographer.getScheduler().submit(decodeWorker, JobScheduler.PRIORITY_HIGH, decodeWorker.getMemoryEstimate());
 						workerBusy = true;
-						decodeWorker.execute();
 					} catch (IOException e) {
 						e.printStackTrace();
 						JOptionPane.showMessageDialog(null, "Invalid host image path.");
-					} catch (ImageOverflowException e) {
-						JOptionPane.showMessageDialog(null, "Internal error: Image overflow");
-					} catch (CannotDecodeException e) {
-						JOptionPane.showMessageDialog(null, "The host image does not contain a valid stego.");
+					} catch (InsufficientMemoryException e) {
+						JOptionPane.showMessageDialog(null, "Not enough memory to decode this image.");
 					}
 				} else {
 					JOptionPane.showMessageDialog(null, "Invalid output directory path.");
@@ -222,12 +243,34 @@ public class DecodePopup implements ActionListener, PropertyChangeListener, Wind
 	}
 
 	public void propertyChange(PropertyChangeEvent event) {
+		if (event.getSource() != decodeWorker) {
+			if (event.getSource() == probeWorker && event.getNewValue() == SwingWorker.StateValue.DONE && !probeWorker.isCancelled()) {
+				probeDone();
+			}
+			return; // Ignore probes that have been replaced
+		}
+		if (event.getNewValue() == SwingWorker.StateValue.DONE && workerBusy && !decodeWorker.isCancelled()) {
+			try {
+				decodeWorker.get(); // Finished decodes are handled once their progress reaches 100
+			} catch (ExecutionException e) {
+				workerBusy = false;
+				progressBar.setString("Operation failed!");
+				if (e.getCause() instanceof CannotDecodeException) {
+					JOptionPane.showMessageDialog(null, "The host image does not contain a valid stego.");
+				} else {
+					JOptionPane.showMessageDialog(null, "Cannot decode: The stego could not be saved.");
+				}
+			} catch (InterruptedException e) {
+				workerBusy = false;
+				progressBar.setString("Operation failed!");
+			}
+			return;
+		}
 		try {
 			int progress = (Integer) event.getNewValue();
 			progressBar.setValue(progress);
 			progressBar.setString("Decoding: " + progress + "%");
 			if (progress == 100 && !decodeWorker.isCancelled()) {
-				Steganographer.removeWorker();
 				workerBusy = false;
 				progressBar.setString("Done!");
 				JOptionPane.showMessageDialog(null, "Done!");
@@ -271,9 +314,11 @@ public class DecodePopup implements ActionListener, PropertyChangeListener, Wind
 
 	private void exit() {
 		if (!workerBusy || JOptionPane.showConfirmDialog(null, "A file is currently being decoded.\nAre you sure you want to close?", "Close?",  JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
-			if(decodeWorker != null && !decodeWorker.isDone()) {
-				decodeWorker.cancel(true);
-				Steganographer.removeWorker();
+			if(decodeJob != null && !decodeJob.isDone()) {
+				decodeJob.cancel(); // Also drops it from the queue if it has not started
+			}
+			if (probeJob != null && !probeJob.isDone()) {
+				probeJob.cancel();
 			}
 			window.setVisible(false);
 			window.dispose();
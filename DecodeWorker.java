@@ -1,31 +1,64 @@
 import javax.imageio.IIOException;
 import javax.swing.SwingWorker;
-import java.io.FileNotFoundException;
+import java.awt.Dimension;
+import java.io.File;
 import java.io.IOException;
 
 // By: Justin Spedding & Andrew Miller
 
 public class DecodeWorker extends SwingWorker<Void, Void> {
 
+	private String hostImagePath, outputDirPath, password; // Remembered until the host image is loaded
+	private long memoryEstimate; // The most bytes the decode is expected to use at once
 	private SegmentedDecoder decoder;
-	private int currentSegment;
 
-	public DecodeWorker(String hostImagePath, String outputDirPath, String password) throws FileNotFoundException, IOException, IIOException, CannotDecodeException, ImageOverflowException {
-		this.decoder = new SegmentedDecoder(hostImagePath, outputDirPath, password);
-		currentSegment = 0;
+	/**
+	 * Constructs a worker that loads and decodes the host image once it runs
+	 * Only the header of the host image is read here, to estimate the memory the decode needs.
+	 *
+	 * @param hostImagePath
+	 * 			The path to the host image
+	 * @param outputDirPath
+	 * 			The directory to save the hidden file
+	 * @param password
+	 * 			The password used to store the stego
+	 * @throws IOException
+	 * 			Throws if the host image cannot be read or is not an image
+	 */
+	public DecodeWorker(String hostImagePath, String outputDirPath, String password) throws IOException, IIOException {
+		this.hostImagePath = hostImagePath;
+		this.outputDirPath = outputDirPath;
+		this.password = password;
+		Dimension size = HostRaster.readSize(new File(hostImagePath));
+		memoryEstimate = SegmentedDecoder.estimatePeakMemoryUsage(size.width, size.height);
 	}
 
-	public Void doInBackground() throws IOException, IIOException, ImageOverflowException, NoSuchSegmentException {
-		while (decoder.hasNext() && !isCancelled()) {
-			setProgress((currentSegment * 100) / decoder.getTotalSegments());
-			decoder.nextSegment();
-			currentSegment++;
+	public Void doInBackground() throws IOException, IIOException, CannotDecodeException, ImageOverflowException, NoSuchSegmentException {
+		decoder = new SegmentedDecoder(hostImagePath, outputDirPath, password);
+		try {
+			while (decoder.hasNext() && !isCancelled()) {
+				setProgress(decoder.getProgress()); // Segments are sized by time, so how many there are is not known up front
+				decoder.nextSegment();
+			}
+		} finally {
+			if (decoder.hasNext()) { // The last segment closes the decoder, so only a cancelled or failed one is still open
+				decoder.close();
+			}
 		}
 		setProgress(100);
 		return null;
 	}
 
+	/**
+	 * Returns the most bytes the worker is expected to use at once, for the job scheduler
+	 *
+	 * @return The memory estimate in bytes
+	 */
+	public long getMemoryEstimate() {
+		return memoryEstimate;
+	}
+
 	public void done() {
 
 	}
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
@@ -24,8 +25,10 @@ public class EncodePopup implements ActionListener, PropertyChangeListener, Wind
 
 	private String lastPassword, lastHostImagePath, lastStegoPath; // Do not re-encode if the preview will not change
 	private EncodeWorker encodeWorker; // Worker thread
+	private JobScheduler.Job encodeJob; // The encode worker's place in the scheduler
 	private boolean usePassword; // Should the password be used?
 	private boolean workerBusy; // Is the worker busy?
+	private boolean tooLargeToPreview; // Was the last encoded image too big to be held by a BufferedImage?
 	private boolean encodePending; // Was the encode button pushed?
 
 	/**
@@ -183,17 +186,17 @@ public class EncodePopup implements ActionListener, PropertyChangeListener, Wind
 					lastStegoPath = stegoPath;
 					lastPassword = password;
 					previewImage.loadText("Generating preview...");
+					closeWorker();
 					encodeWorker = new EncodeWorker(hostImagePath, stegoPath, password); // Create a worker thread for encoding
 					encodeWorker.addPropertyChangeListener(this);
+					encodeJob = Steganographer.getScheduler().submit(encodeWorker, encodePending ? JobScheduler.PRIORITY_HIGH : JobScheduler.PRIORITY_NORMAL, encodeWorker.getMemoryEstimate()); // A preview that will be saved goes first
 					workerBusy = true; // The encode worker is busy
-					encodeWorker.execute();
 				}
 			} catch (IOException e) {
 				previewImage.loadText("Invalid host image or stego path.");
-			} catch (ImageOverflowException e) {
-				previewImage.loadText("Internal error: Image overflow");
-			} catch (CannotEncodeException e) {
-				previewImage.loadText("Host image not big enough.");
+			} catch (InsufficientMemoryException e) {
+				lastHostImagePath = ""; // Try again if the memory budget is raised
+				previewImage.loadText("Not enough memory to encode this image.");
 			}
 		} else {
 			printBusyMessage();
@@ -201,9 +204,13 @@ public class EncodePopup implements ActionListener, PropertyChangeListener, Wind
 	}
 
 	private void writePreviewImage() {
-		if (previewImage.isImage()) {
+		if (previewImage.isImage() || tooLargeToPreview) {
 			try {
-				ImageIO.write(previewImage.getImage(), "bmp" , new File(outputImagePath)); // Write the preview to a new image file
+				if (tooLargeToPreview) {
+					encodeWorker.getEncodedRaster().write(new File(outputImagePath)); // Stream the rows out instead
+				} else {
+					ImageIO.write(previewImage.getImage(), "bmp" , new File(outputImagePath)); // Write the preview to a new image file
+				}
 				JOptionPane.showMessageDialog(null, "Done!");
 			} catch (Exception j) {
 				progressBar.setString("Failed to save output image.");
@@ -223,9 +230,9 @@ public class EncodePopup implements ActionListener, PropertyChangeListener, Wind
 				updateStatus();
 				if (Steganographer.checkOutputImagePath(outputImagePath)) {
 					if (!lastHostImagePath.equals(hostImagePath) || !lastStegoPath.equals(stegoPath)) {
-						generatePreview(); // Generate the preview
 						encodePending = true; // Remember to write the preview to the file when done
-						Steganographer.addWorker();
+						generatePreview(); // Generate the preview
+						encodePending = workerBusy; // Nothing will be written if the preview could not be started
 					} else {
 						writePreviewImage(); // Preview already generated, so just write it
 					}
@@ -279,6 +286,30 @@ public class EncodePopup implements ActionListener, PropertyChangeListener, Wind
 	}
 
 	public void propertyChange(PropertyChangeEvent event) {
+		if (event.getNewValue() == SwingWorker.StateValue.DONE && workerBusy && !encodeWorker.isCancelled()) {
+			try {
+				encodeWorker.get(); // Finished encodes are handled once their progress reaches 100
+			} catch (ExecutionException | InterruptedException e) {
+				workerBusy = false;
+				lastHostImagePath = ""; // Let the same files be tried again
+				progressBar.setString("Operation failed!");
+				Throwable cause = e.getCause();
+				if (cause instanceof CannotEncodeException) {
+					previewImage.loadText("Host image not big enough.");
+				} else if (cause instanceof ImageOverflowException) {
+					previewImage.loadText("Internal error: Image overflow");
+				} else if (cause instanceof IOException) {
+					previewImage.loadText("Invalid host image or stego path.");
+				} else {
+					previewImage.loadText("Internal error: Something unusual went wrong...");
+				}
+				if (encodePending) {
+					writePreviewImage(); // Tells the user nothing was saved
+					encodePending = false;
+				}
+			}
+			return;
+		}
 		try {
 			int progress = (Integer) event.getNewValue();
 			progressBar.setValue(progress);
@@ -287,14 +318,19 @@ public class EncodePopup implements ActionListener, PropertyChangeListener, Wind
 				workerBusy = false;
 				progressBar.setString("Done!");
 				try {
-					previewImage.loadImage(encodeWorker.get());
+					BufferedImage encodedImage = encodeWorker.get();
+					tooLargeToPreview = encodedImage == null;
+					if (tooLargeToPreview) {
+						previewImage.loadText("The encoded image is too large to preview.");
+					} else {
+						previewImage.loadImage(encodedImage);
+					}
 				} catch (ExecutionException | InterruptedException | CancellationException e) {
 					progressBar.setString("Operation failed!");
 					previewImage.loadText("Internal error: Something unusual went wrong...");
 				}
 				if (encodePending) {
 					writePreviewImage();
-					Steganographer.removeWorker();
 					encodePending = false;
 				}
 			}
@@ -335,12 +371,22 @@ public class EncodePopup implements ActionListener, PropertyChangeListener, Wind
 
 	}
 
+	private void closeWorker() {
+		if (encodeWorker != null && encodeWorker.isDone() && !encodeWorker.isCancelled()) { // A cancelled worker may still be using its image, and closes it itself once it stops
+			try {
+				encodeWorker.close();
+			} catch (IOException e) {
+				// Only a temporary file is left behind, which is deleted on exit
+			}
+		}
+	}
+
 	private void exit() {
 		if (!encodePending || JOptionPane.showConfirmDialog(null, "A file is currently being encoded.\nAre you sure you want to close?", "Close?",  JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
-			if(encodeWorker != null && !encodeWorker.isDone()) {
-				encodeWorker.cancel(true);
-				Steganographer.removeWorker();
+			if(encodeJob != null && !encodeJob.isDone()) {
+				encodeJob.cancel(); // Also drops it from the queue if it has not started
 			}
+			closeWorker();
 			window.setVisible(false);
 			window.dispose();
 		}
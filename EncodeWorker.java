@@ -1,6 +1,8 @@
 import javax.imageio.IIOException;
 import javax.swing.SwingWorker;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
@@ -8,25 +10,86 @@ import java.io.IOException;
 
 public class EncodeWorker extends SwingWorker<BufferedImage, Void> {
 
+	private String hostImagePath, stegoPath, password; // Remembered until the host image is loaded
+	private long memoryEstimate; // The most bytes the encode is expected to use at once
 	private SegmentedEncoder encoder;
-	private int currentSegment;
 
-	public EncodeWorker(String hostImagePath, String stegoPath, String password) throws FileNotFoundException, IOException, IIOException, CannotEncodeException, ImageOverflowException {
-		this.encoder = new SegmentedEncoder(hostImagePath, stegoPath, password);
-		currentSegment = 0;
+	/**
+	 * Constructs a worker that loads and encodes the host image once it runs
+	 * Only the header of the host image is read here, to estimate the memory the encode needs.
+	 *
+	 * @param hostImagePath
+	 * 			The path to the host image
+	 * @param stegoPath
+	 * 			The path to the stego
+	 * @param password
+	 * 			The password used to store the stego
+	 * @throws FileNotFoundException
+	 * 			Throws if the stego was not found
+	 * @throws IOException
+	 * 			Throws if the host image cannot be read or is not an image
+	 */
+	public EncodeWorker(String hostImagePath, String stegoPath, String password) throws FileNotFoundException, IOException, IIOException {
+		this.hostImagePath = hostImagePath;
+		this.stegoPath = stegoPath;
+		this.password = password;
+		File stego = new File(stegoPath);
+		if (!stego.isFile()) {
+			throw new FileNotFoundException(stegoPath);
+		}
+		Dimension size = HostRaster.readSize(new File(hostImagePath));
+		memoryEstimate = SegmentedEncoder.estimatePeakMemoryUsage(size.width, size.height, stego.length(), Steganographer.getLayout(), Steganographer.getCodec());
 	}
 
-	public BufferedImage doInBackground() throws IOException, IIOException, ImageOverflowException, NoSuchSegmentException {
-		while (encoder.hasNext() && !isCancelled()) {
-			setProgress((currentSegment * 100) / encoder.getTotalSegments());
-			encoder.nextSegment();
-			currentSegment++;
+	public BufferedImage doInBackground() throws IOException, IIOException, CannotEncodeException, ImageOverflowException, NoSuchSegmentException {
+		encoder = new SegmentedEncoder(hostImagePath, stegoPath, password);
+		boolean finished = false;
+		try {
+			while (encoder.hasNext() && !isCancelled()) {
+				setProgress(encoder.getProgress()); // Segments are sized by time, so how many there are is not known up front
+				encoder.nextSegment();
+			}
+			finished = !isCancelled();
+		} finally {
+			if (!finished) { // Nobody will ask for the image of a cancelled or failed encode, so it is released here once it is no longer used
+				encoder.close();
+			}
 		}
 		setProgress(100);
 		return encoder.getEncodedImage();
 	}
 
+	/**
+	 * Returns the pixels of the encoded image, for images too big to be returned as a BufferedImage
+	 *
+	 * @return The raster of the encoded image
+	 */
+	public HostRaster getEncodedRaster() {
+		return encoder.getEncodedRaster();
+	}
+
+	/**
+	 * Releases the files held open by the encoded image once it is no longer needed
+	 *
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 */
+	public void close() throws IOException {
+		if (encoder != null) { // Nothing was loaded if the encode failed
+			encoder.getEncodedRaster().close();
+		}
+	}
+
+	/**
+	 * Returns the most bytes the worker is expected to use at once, for the job scheduler
+	 *
+	 * @return The memory estimate in bytes
+	 */
+	public long getMemoryEstimate() {
+		return memoryEstimate;
+	}
+
 	public void done() {
 
 	}
-}
\ No newline at end of file
+}
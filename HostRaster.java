@@ -0,0 +1,231 @@
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+
+// By: Justin Spedding & Andrew Miller
+
+public abstract class HostRaster {
+
+	private static long offHeapPixels = 1L << 26; // Images with more pixels than this are not loaded onto the heap as a whole
+	private static long tileCacheSize = 1L << 26; // The most bytes of tiles kept in memory for images that are not on the heap, or 0 to load them off the heap
+
+	/**
+	 * Loads a host image into the kind of raster that suits its size
+	 * Images up to getOffHeapPixels() pixels are decoded a strip of rows at a time into a packed image on the heap.
+	 * Bigger ones are never held as a whole BufferedImage: they are decoded in bands of rows into a bounded cache of
+	 * tiles backed by a temporary file, or with no tile cache into memory outside the heap. Close the raster when it is
+	 * done with.
+	 *
+	 * @param file
+	 * 			The host image file
+	 * @return The pixels of the host image
+	 * @throws IOException
+	 * 			Throws if the file cannot be read or is not an image
+	 */
+	public static HostRaster read(File file) throws IOException, IIOException {
+		javax.imageio.ImageReader reader = createReader(file);
+		try {
+			if ((long) reader.getWidth(0) * reader.getHeight(0) <= offHeapPixels) {
+				return PackedRaster.read(reader);
+			} else if (tileCacheSize > 0) {
+				return new TiledRaster(reader, tileCacheSize);
+			}
+			return OffHeapRaster.read(reader);
+		} finally {
+			reader.dispose();
+			((ImageInputStream) reader.getInput()).close();
+		}
+	}
+
+	/**
+	 * Reads the size of a host image from its header, without decoding any pixels
+	 *
+	 * @param file
+	 * 			The host image file
+	 * @return The width and height of the host image
+	 * @throws IOException
+	 * 			Throws if the file cannot be read or is not an image
+	 */
+	public static Dimension readSize(File file) throws IOException, IIOException {
+		javax.imageio.ImageReader reader = createReader(file);
+		try {
+			return new Dimension(reader.getWidth(0), reader.getHeight(0));
+		} finally {
+			reader.dispose();
+			((ImageInputStream) reader.getInput()).close();
+		}
+	}
+
+	/**
+	 * Returns roughly how many bytes of memory read() would use for the pixels of an image of a given size
+	 *
+	 * @param width
+	 * 			The width of the image
+	 * @param height
+	 * 			The height of the image
+	 * @return The memory the raster would use in bytes
+	 */
+	public static long estimateMemoryUsage(int width, int height) {
+		if ((long) width * height > offHeapPixels && tileCacheSize > 0) {
+			return TiledRaster.getMemoryUsage(width, height, tileCacheSize);
+		}
+		return 4L * width * height; // Packed on the heap or outside it
+	}
+
+	private static javax.imageio.ImageReader createReader(File file) throws IOException, IIOException { // Not this package's ImageReader
+		ImageInputStream input = ImageIO.createImageInputStream(file);
+		if (input == null) {
+			throw new IIOException("Can't read input file!");
+		}
+		Iterator<javax.imageio.ImageReader> readers = ImageIO.getImageReaders(input);
+		if (!readers.hasNext()) {
+			input.close();
+			throw new IIOException("Unsupported image format");
+		}
+		javax.imageio.ImageReader reader = readers.next();
+		reader.setInput(input, false, true); // Each strip or band is read from the start of the image
+		return reader;
+	}
+
+	/**
+	 * Returns the most pixels an image can have to be loaded onto the heap
+	 *
+	 * @return The number of pixels
+	 */
+	public static long getOffHeapPixels() {
+		return offHeapPixels;
+	}
+
+	/**
+	 * Sets the most pixels an image can have to be loaded onto the heap
+	 *
+	 * @param offHeapPixels
+	 * 			The number of pixels
+	 */
+	public static void setOffHeapPixels(long offHeapPixels) {
+		HostRaster.offHeapPixels = offHeapPixels;
+	}
+
+	/**
+	 * Returns the most bytes of tiles kept in memory for images that are not loaded onto the heap
+	 *
+	 * @return The size of the tile cache in bytes, or 0 if such images are loaded outside the heap instead
+	 */
+	public static long getTileCacheSize() {
+		return tileCacheSize;
+	}
+
+	/**
+	 * Sets the most bytes of tiles kept in memory for images that are not loaded onto the heap
+	 *
+	 * @param tileCacheSize
+	 * 			The size of the tile cache in bytes, or 0 to load such images outside the heap instead
+	 */
+	public static void setTileCacheSize(long tileCacheSize) {
+		HostRaster.tileCacheSize = tileCacheSize;
+	}
+
+	/**
+	 * Returns the width of the image
+	 *
+	 * @return The width of the image
+	 */
+	public abstract int getWidth();
+
+	/**
+	 * Returns the height of the image
+	 *
+	 * @return The height of the image
+	 */
+	public abstract int getHeight();
+
+	/**
+	 * Returns the number of pixels in the image
+	 *
+	 * @return The width times the height of the image
+	 */
+	public long getPixelCount() {
+		return (long) getWidth() * getHeight();
+	}
+
+	/**
+	 * Returns the packed RGB value of a pixel
+	 *
+	 * @param pixel
+	 * 			The row-major index of the pixel
+	 * @return The packed RGB value
+	 */
+	public abstract int getPixel(long pixel);
+
+	/**
+	 * Sets the packed RGB value of a pixel
+	 * Separate threads may set separate pixels at the same time.
+	 *
+	 * @param pixel
+	 * 			The row-major index of the pixel
+	 * @param rgb
+	 * 			The packed RGB value
+	 */
+	public abstract void setPixel(long pixel, int rgb);
+
+	/**
+	 * Copies a row of packed RGB values out of the image
+	 *
+	 * @param y
+	 * 			The row to copy
+	 * @param rgbRow
+	 * 			The array to copy the row into, at least as long as the width
+	 */
+	public abstract void getRow(int y, int[] rgbRow);
+
+	/**
+	 * Copies a row of packed RGB values into the image
+	 *
+	 * @param y
+	 * 			The row to copy into
+	 * @param rgbRow
+	 * 			The array holding the row, at least as long as the width
+	 */
+	public abstract void setRow(int y, int[] rgbRow);
+
+	/**
+	 * Returns roughly how many bytes of memory the pixels take up, on or off the heap
+	 *
+	 * @return The memory used by the raster in bytes
+	 */
+	public abstract long getMemoryUsage();
+
+	/**
+	 * Returns the image the raster is backed by
+	 *
+	 * @return The image, or null if the raster is too big to be held by a BufferedImage
+	 */
+	public abstract BufferedImage getImage();
+
+	/**
+	 * Writes the image to a 24 bit BMP file a row at a time
+	 *
+	 * @param file
+	 * 			The file to write
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 */
+	public void write(File file) throws IOException {
+		BmpStreamWriter.write(this, file);
+	}
+
+	/**
+	 * Releases any files the raster holds open
+	 *
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 */
+	public void close() throws IOException {
+	}
+}
@@ -1,65 +1,241 @@
 import java.awt.image.BufferedImage;
-import java.util.Random;
+import java.awt.image.DataBufferInt;
 
 // By: Justin Spedding & Andrew Miller
 
 public abstract class ImageManipulator {
 
-	protected BufferedImage hostImage; // The host file to write to
+	protected HostRaster raster; // The pixels of the host image
+	protected long pixelCount; // The number of pixels in the host image
+	protected int width; // The width of the host image
 	protected int x; // The x coordinate of the current pixel
 	protected int y; // The y coordinate of the current pixel
 	protected int rgb; // The color to access: 2 = red, 1 = green, 0 = blue
 	protected int currentBit; // The least significant bit to access, 0 = last bit in byte, 7 = first bit in byte
-	protected int index; // The index of the current pixel in the pixel array
-	protected int[] pixelArray; // The order in which to access pixels
+	protected long index; // The index of the current pixel in the pixel order
+	protected long pixel; // The index of the current pixel in the host image
+	protected PixelOrder pixelOrder; // The order in which to access pixels
+	protected Layout layout; // The layout the pixel order belongs to
+	protected boolean pixelMajor; // Whether every bit of a pixel is accessed before moving on to the next pixel
+	protected int depth; // The number of least significant bits of each color that can be accessed
 
-	protected ImageManipulator(BufferedImage hostImage, String password) {
-		this.hostImage = hostImage;
-		generatePixelArray(password.hashCode());
+	protected ImageManipulator(BufferedImage hostImage, String password, Layout layout, int depth) {
+		this(new PackedRaster(hostImage), password, layout, depth);
+	}
+
+	protected ImageManipulator(HostRaster raster, String password, Layout layout, int depth) {
+		this(raster, PixelOrderCache.getPixelOrder(layout, raster.getPixelCount(), password), layout, depth); // Reuse the order if this size and password were seen before
+	}
+
+	protected ImageManipulator(HostRaster raster, PixelOrder pixelOrder, Layout layout, int depth) {
+		this.raster = raster;
+		this.pixelOrder = pixelOrder;
+		this.layout = layout;
+		this.depth = depth;
+		pixelMajor = layout.isPixelMajor();
+		pixelCount = raster.getPixelCount();
+		width = raster.getWidth();
 		index = 0;
 		rgb = 0;
 		currentBit = 0;
-		x = pixelArray[index] % hostImage.getWidth();
-		y = pixelArray[index] / hostImage.getWidth();
+		pixel = pixelOrder.getPixel(index);
+		x = (int) (pixel % width);
+		y = (int) (pixel / width);
+	}
+
+	/**
+	 * Constructs a manipulator over the same host image and pixel order as another one, starting at the same bit
+	 * Manipulators that share a host image can be moved independently, so separate threads can work on separate bits.
+	 *
+	 * @param source
+	 * 			The manipulator to share the host image and pixel order with
+	 */
+	protected ImageManipulator(ImageManipulator source) {
+		raster = source.raster;
+		pixelCount = source.pixelCount;
+		width = source.width;
+		pixelOrder = source.pixelOrder;
+		layout = source.layout;
+		pixelMajor = source.pixelMajor;
+		depth = source.depth;
+		index = source.index;
+		rgb = source.rgb;
+		currentBit = source.currentBit;
+		pixel = source.pixel;
+		x = source.x;
+		y = source.y;
 	}
 
-	private void generatePixelArray(int seed) {
-		pixelArray = new int[hostImage.getHeight() * hostImage.getWidth()]; // Create an array of indexes to all the pixels
-		for (int i = pixelArray.length - 1; i >= 0; i--) {
-			pixelArray[i] = i; // Add all of the indexes in order
+	/**
+	 * Returns an image whose pixels are stored as one packed int each, in row order
+	 * Images that are already stored this way are returned as is, everything else is copied once.
+	 *
+	 * @param image
+	 * 			The image to convert
+	 * @return An image backed by a packed int raster with the same pixels
+	 */
+	public static BufferedImage toPackedImage(BufferedImage image) {
+		int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		if (image.getType() == type && image.getRaster().getParent() == null) { // Already packed and not a sub-image
+			return image;
 		}
-		Random random = new Random(seed);
-		for (int i = pixelArray.length - 1; i != 0; i--) { // Shuffle the array
-			int randomIndex = random.nextInt(i + 1);
-			int temp = pixelArray[i];
-			pixelArray[i] = pixelArray[randomIndex];
-			pixelArray[randomIndex] = temp;
+		int width = image.getWidth();
+		BufferedImage packedImage = new BufferedImage(width, image.getHeight(), type);
+		int[] packedPixels = ((DataBufferInt) packedImage.getRaster().getDataBuffer()).getData();
+		for (int row = 0; row < image.getHeight(); row++) { // Convert a row at a time straight into the new raster
+			image.getRGB(0, row, width, 1, packedPixels, row * width, width);
 		}
+		return packedImage;
 	}
 
 	protected void nextPixel() throws ImageOverflowException {
+		if (pixelMajor) {
+			nextBitInPixel();
+			return;
+		}
 		index++;
-		if (index >= pixelArray.length) { // Go to next rgb offset if necessary
+		if (index >= pixelCount) { // Go to next rgb offset if necessary
 			index = 0;
 			rgb++;
 			if (rgb > 2) { // Go to next least significant pixel if necessary
 				rgb = 0;
 				currentBit++;
-				if (currentBit > 7) { // Throw exception if there is no next pixel
+				if (currentBit >= depth) { // Throw exception if there is no next pixel
+					throw new ImageOverflowException();
+				}
+			}
+		}
+		pixel = pixelOrder.getPixel(index);
+		x = (int) (pixel % width);
+		y = (int) (pixel / width);
+	}
+
+	private void nextBitInPixel() throws ImageOverflowException {
+		rgb++;
+		if (rgb > 2) { // Go to the next bit of the same pixel
+			rgb = 0;
+			currentBit++;
+			if (currentBit >= depth) { // Go to the next pixel once every bit of the pixel is used
+				currentBit = 0;
+				index++;
+				if (index >= pixelCount) { // Throw exception if there is no next pixel
 					throw new ImageOverflowException();
 				}
+				pixel = pixelOrder.getPixel(index); // The pixel only changes here, so each one is fetched once
+				x = (int) (pixel % width);
+				y = (int) (pixel / width);
 			}
 		}
-		x = pixelArray[index] % hostImage.getWidth();
-		y = pixelArray[index] / hostImage.getWidth();
+	}
+
+	/**
+	 * Returns the position of the next bit to access
+	 *
+	 * @return The number of bits that come before the next bit to access
+	 */
+	public long getPosition() {
+		if (pixelMajor) {
+			return index * 3 * depth + currentBit * 3 + rgb;
+		}
+		return (currentBit * 3L + rgb) * pixelCount + index;
+	}
+
+	/**
+	 * Moves to any bit in the image
+	 *
+	 * @param position
+	 * 			The number of bits that come before the bit to move to
+	 * @throws ImageOverflowException
+	 * 			Throws if the position is past the last bit in the image
+	 */
+	public void seek(long position) throws ImageOverflowException {
+		if (position < 0 || position >= getBitCapacity()) {
+			throw new ImageOverflowException();
+		}
+		if (pixelMajor) {
+			index = position / (3 * depth);
+			int slot = (int) (position % (3 * depth));
+			currentBit = slot / 3;
+			rgb = slot % 3;
+		} else {
+			long pass = position / pixelCount; // Every pass visits each pixel once
+			index = position % pixelCount;
+			rgb = (int) (pass % 3);
+			currentBit = (int) (pass / 3);
+		}
+		pixel = pixelOrder.getPixel(index);
+		x = (int) (pixel % width);
+		y = (int) (pixel / width);
+	}
+
+	/**
+	 * Returns the position at which the current pass over the pixels ends
+	 * Each pixel is visited only once from the current position up to this one, and getPixelBits() bits in a row are
+	 * accessed in it at each visit.
+	 *
+	 * @return The position of the first bit of the next pass
+	 */
+	public long getPassEnd() {
+		if (pixelMajor) {
+			return getBitCapacity(); // Every pixel is visited only once
+		}
+		return (currentBit * 3L + rgb + 1) * pixelCount;
+	}
+
+	/**
+	 * Returns the number of bits in a row that are accessed in a pixel at each visit during the current pass
+	 *
+	 * @return The number of bits accessed in a pixel at once
+	 */
+	public int getPixelBits() {
+		if (pixelMajor) {
+			return 3 * depth;
+		}
+		return 1;
+	}
+
+	/**
+	 * Returns the total number of bits that can be accessed in the image
+	 *
+	 * @return The number of bits in the image
+	 */
+	public long getBitCapacity() {
+		return 3L * depth * pixelCount;
 	}
 
 	/**
 	 * Returns the host image
 	 *
-	 * @return The host image
+	 * @return The host image, or null if it is too big to be held by a BufferedImage
 	 */
 	public BufferedImage getHostImage() {
-		return hostImage;
+		return raster.getImage();
+	}
+
+	/**
+	 * Returns the pixels of the host image
+	 *
+	 * @return The raster of the host image
+	 */
+	public HostRaster getRaster() {
+		return raster;
+	}
+
+	/**
+	 * Returns the layout used to order the pixels
+	 *
+	 * @return The layout
+	 */
+	public Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Returns the number of least significant bits of each color that can be accessed
+	 *
+	 * @return The depth
+	 */
+	public int getDepth() {
+		return depth;
 	}
 }
@@ -1,7 +1,11 @@
+import java.nio.ByteBuffer;
+
 // By: Justin Spedding & Andrew Miller
 
 public class ImageRW {
 
+	private static final int BLOCK_SIZE = 8192; // The number of bytes to copy at a time for buffers without a backing array
+
 	/**
 	 * Writes a byte to an image
 	 *
@@ -18,6 +22,48 @@ public class ImageRW {
 		}
 	}
 
+	/**
+	 * Writes a block of bytes to an image
+	 *
+	 * @param imageWriter
+	 * 			The image writer to use
+	 * @param bytesToWrite
+	 * 			The array holding the bytes to write
+	 * @param off
+	 * 			The index of the first byte to write
+	 * @param len
+	 * 			The number of bytes to write
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public static void writeBytes(ImageWriter imageWriter, byte[] bytesToWrite, int off, int len) throws ImageOverflowException {
+		imageWriter.writeBytes(bytesToWrite, off, len);
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer to an image
+	 *
+	 * @param imageWriter
+	 * 			The image writer to use
+	 * @param bytesToWrite
+	 * 			The buffer holding the bytes to write, its position is advanced to its limit
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public static void writeBytes(ImageWriter imageWriter, ByteBuffer bytesToWrite) throws ImageOverflowException {
+		if (bytesToWrite.hasArray()) { // Write straight out of the backing array
+			imageWriter.writeBytes(bytesToWrite.array(), bytesToWrite.arrayOffset() + bytesToWrite.position(), bytesToWrite.remaining());
+			bytesToWrite.position(bytesToWrite.limit());
+		} else { // Copy through a small heap block
+			byte[] block = new byte[Math.min(bytesToWrite.remaining(), BLOCK_SIZE)];
+			while (bytesToWrite.hasRemaining()) {
+				int len = Math.min(bytesToWrite.remaining(), block.length);
+				bytesToWrite.get(block, 0, len);
+				imageWriter.writeBytes(block, 0, len);
+			}
+		}
+	}
+
 	/**
 	 * Writes a char to an image
 	 *
@@ -99,6 +145,48 @@ public class ImageRW {
 		return (byte) output;
 	}
 
+	/**
+	 * Reads a block of bytes from an image
+	 *
+	 * @param imageReader
+	 * 			The image reader to use
+	 * @param bytesToRead
+	 * 			The array to store the bytes in
+	 * @param off
+	 * 			The index to store the first byte at
+	 * @param len
+	 * 			The number of bytes to read
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to read from a pixel that does not exist
+	 */
+	public static void readBytes(ImageReader imageReader, byte[] bytesToRead, int off, int len) throws ImageOverflowException {
+		imageReader.readBytes(bytesToRead, off, len);
+	}
+
+	/**
+	 * Reads bytes from an image until a buffer is full
+	 *
+	 * @param imageReader
+	 * 			The image reader to use
+	 * @param bytesToRead
+	 * 			The buffer to store the bytes in, its position is advanced to its limit
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to read from a pixel that does not exist
+	 */
+	public static void readBytes(ImageReader imageReader, ByteBuffer bytesToRead) throws ImageOverflowException {
+		if (bytesToRead.hasArray()) { // Read straight into the backing array
+			imageReader.readBytes(bytesToRead.array(), bytesToRead.arrayOffset() + bytesToRead.position(), bytesToRead.remaining());
+			bytesToRead.position(bytesToRead.limit());
+		} else { // Copy through a small heap block
+			byte[] block = new byte[Math.min(bytesToRead.remaining(), BLOCK_SIZE)];
+			while (bytesToRead.hasRemaining()) {
+				int len = Math.min(bytesToRead.remaining(), block.length);
+				imageReader.readBytes(block, 0, len);
+				bytesToRead.put(block, 0, len);
+			}
+		}
+	}
+
 	/**
 	 * Reads a char from an image
 	 *
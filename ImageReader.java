@@ -5,7 +5,7 @@ import java.awt.image.BufferedImage;
 public class ImageReader extends ImageManipulator {
 
 	/**
-	 * Constructs an image reader
+	 * Constructs an image reader that uses the v0.7 shuffled pixel order
 	 *
 	 * @param hostImage
 	 * 			The host image to read from
@@ -15,7 +15,85 @@ public class ImageReader extends ImageManipulator {
 	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
 	 */
 	public ImageReader(BufferedImage hostImage, String password) throws ImageOverflowException {
-		super(hostImage, password);
+		this(hostImage, password, Layout.SHUFFLED);
+	}
+
+	/**
+	 * Constructs an image reader that can access every bit of each color
+	 *
+	 * @param hostImage
+	 * 			The host image to read from
+	 * @param password
+	 * 			The password used to store the stego
+	 * @param layout
+	 * 			The layout that decides the order in which pixels are visited
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public ImageReader(BufferedImage hostImage, String password, Layout layout) throws ImageOverflowException {
+		this(hostImage, password, layout, 8);
+	}
+
+	/**
+	 * Constructs an image reader that only accesses the least significant bits of each color
+	 *
+	 * @param hostImage
+	 * 			The host image to read from
+	 * @param password
+	 * 			The password used to store the stego
+	 * @param layout
+	 * 			The layout that decides the order in which pixels are visited
+	 * @param depth
+	 * 			The number of least significant bits of each color to access, from 1 to 8
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public ImageReader(BufferedImage hostImage, String password, Layout layout, int depth) throws ImageOverflowException {
+		super(hostImage, password, layout, depth);
+	}
+
+	/**
+	 * Constructs an image reader over a raster that may be too big for a BufferedImage
+	 *
+	 * @param raster
+	 * 			The pixels of the host image to read from
+	 * @param password
+	 * 			The password used to store the stego
+	 * @param layout
+	 * 			The layout that decides the order in which pixels are visited
+	 * @param depth
+	 * 			The number of least significant bits of each color to access, from 1 to 8
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public ImageReader(HostRaster raster, String password, Layout layout, int depth) throws ImageOverflowException {
+		super(raster, password, layout, depth);
+	}
+
+	/**
+	 * Constructs an image reader that visits pixels in an order that has already been made
+	 *
+	 * @param raster
+	 * 			The pixels of the host image to read from
+	 * @param pixelOrder
+	 * 			The order in which to visit the pixels
+	 * @param layout
+	 * 			The layout the pixel order belongs to
+	 * @param depth
+	 * 			The number of least significant bits of each color to access, from 1 to 8
+	 */
+	public ImageReader(HostRaster raster, PixelOrder pixelOrder, Layout layout, int depth) {
+		super(raster, pixelOrder, layout, depth);
+	}
+
+	/**
+	 * Constructs an image reader over the same host image as another one, starting at the same bit
+	 *
+	 * @param source
+	 * 			The image reader to share the host image with
+	 */
+	public ImageReader(ImageReader source) {
+		super(source);
 	}
 
 	/**
@@ -26,8 +104,31 @@ public class ImageReader extends ImageManipulator {
 	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
 	 */
 	public int readBit() throws ImageOverflowException {
-		int bit = (hostImage.getRGB(x, y) >> (currentBit + ((x + y + rgb) % 3) * 8)) & 1; // Get the bit
+		int bit = (raster.getPixel(pixel) >> (currentBit + ((x + y + rgb) % 3) * 8)) & 1; // Get the bit
 		nextPixel(); // Advance to the next bit
 		return bit;
 	}
+
+	/**
+	 * Reads a block of bytes from the next bits in the image, most significant bit first
+	 *
+	 * @param dst
+	 * 			The array to store the bytes in
+	 * @param off
+	 * 			The index to store the first byte at
+	 * @param len
+	 * 			The number of bytes to read
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to read from a pixel that does not exist
+	 */
+	public void readBytes(byte[] dst, int off, int len) throws ImageOverflowException {
+		for (int end = off + len; off < end; off++) {
+			int output = 0;
+			for (int i = 0; i < 8; i++) {
+				output = (output << 1) | ((raster.getPixel(pixel) >> (currentBit + ((x + y + rgb) % 3) * 8)) & 1);
+				nextPixel();
+			}
+			dst[off] = (byte) output;
+		}
+	}
 }
@@ -5,7 +5,7 @@ import java.awt.image.BufferedImage;
 public class ImageWriter extends ImageManipulator {
 
 	/**
-	 * Constructs an image writer
+	 * Constructs an image writer that uses the v0.7 shuffled pixel order
 	 *
 	 * @param hostImage
 	 * 			The host image to write to
@@ -15,7 +15,69 @@ public class ImageWriter extends ImageManipulator {
 	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
 	 */
 	public ImageWriter(BufferedImage hostImage, String password) throws ImageOverflowException {
-		super(hostImage, password);
+		this(hostImage, password, Layout.SHUFFLED);
+	}
+
+	/**
+	 * Constructs an image writer that can access every bit of each color
+	 *
+	 * @param hostImage
+	 * 			The host image to write to
+	 * @param password
+	 * 			The password used to store the stego
+	 * @param layout
+	 * 			The layout that decides the order in which pixels are visited
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public ImageWriter(BufferedImage hostImage, String password, Layout layout) throws ImageOverflowException {
+		this(hostImage, password, layout, 8);
+	}
+
+	/**
+	 * Constructs an image writer that only accesses the least significant bits of each color
+	 *
+	 * @param hostImage
+	 * 			The host image to write to
+	 * @param password
+	 * 			The password used to store the stego
+	 * @param layout
+	 * 			The layout that decides the order in which pixels are visited
+	 * @param depth
+	 * 			The number of least significant bits of each color to access, from 1 to 8
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public ImageWriter(BufferedImage hostImage, String password, Layout layout, int depth) throws ImageOverflowException {
+		super(hostImage, password, layout, depth);
+	}
+
+	/**
+	 * Constructs an image writer over a raster that may be too big for a BufferedImage
+	 *
+	 * @param raster
+	 * 			The pixels of the host image to write to
+	 * @param password
+	 * 			The password used to store the stego
+	 * @param layout
+	 * 			The layout that decides the order in which pixels are visited
+	 * @param depth
+	 * 			The number of least significant bits of each color to access, from 1 to 8
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public ImageWriter(HostRaster raster, String password, Layout layout, int depth) throws ImageOverflowException {
+		super(raster, password, layout, depth);
+	}
+
+	/**
+	 * Constructs an image writer over the same host image as another one, starting at the same bit
+	 *
+	 * @param source
+	 * 			The image writer to share the host image with
+	 */
+	public ImageWriter(ImageWriter source) {
+		super(source);
 	}
 
 	/**
@@ -25,11 +87,66 @@ public class ImageWriter extends ImageManipulator {
 	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
 	 */
 	public void writeBit(int bit) throws ImageOverflowException {
-		if (bit == 0) {
-			hostImage.setRGB(x, y, (hostImage.getRGB(x, y) & ~(1 << (currentBit + ((x + y + rgb) % 3) * 8)))); // Set the bit to 0
-		} else {
-			hostImage.setRGB(x, y, (hostImage.getRGB(x, y) | (1 << (currentBit + ((x + y + rgb) % 3) * 8)))); // set the bit to 1
+		int shift = currentBit + ((x + y + rgb) % 3) * 8;
+		int value = raster.getPixel(pixel);
+		if (((value >>> shift) & 1) != (bit == 0 ? 0 : 1)) { // Only touch the pixel if the bit is different
+			raster.setPixel(pixel, value ^ (1 << shift));
 		}
 		nextPixel();
 	}
+
+	/**
+	 * Writes a block of bytes to the next bits in the image, most significant bit first
+	 *
+	 * @param src
+	 * 			The array holding the bytes to write
+	 * @param off
+	 * 			The index of the first byte to write
+	 * @param len
+	 * 			The number of bytes to write
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public void writeBytes(byte[] src, int off, int len) throws ImageOverflowException {
+		if (pixelMajor) {
+			writePixelMajor(src, off, len);
+			return;
+		}
+		for (int end = off + len; off < end; off++) {
+			int byteToWrite = src[off];
+			for (int i = 7; i >= 0; i--) {
+				int shift = currentBit + ((x + y + rgb) % 3) * 8;
+				int value = raster.getPixel(pixel);
+				if (((value >>> shift) & 1) != ((byteToWrite >>> i) & 1)) { // Only touch the pixel if the bit is different, so unchanged tiles stay clean
+					raster.setPixel(pixel, value ^ (1 << shift));
+				}
+				nextPixel();
+			}
+		}
+	}
+
+	private void writePixelMajor(byte[] src, int off, int len) throws ImageOverflowException {
+		int original = raster.getPixel(pixel);
+		int value = original; // Every bit of a visit is set here, then the pixel is stored once if it changed
+		for (int end = off + len; off < end; off++) {
+			int byteToWrite = src[off];
+			for (int i = 7; i >= 0; i--) {
+				int shift = currentBit + ((x + y + rgb) % 3) * 8;
+				value ^= (((value >>> shift) ^ (byteToWrite >>> i)) & 1) << shift;
+				if (rgb == 2 && currentBit == depth - 1) { // The last bit of the pixel
+					if (value != original) {
+						raster.setPixel(pixel, value);
+					}
+					nextPixel();
+					original = raster.getPixel(pixel);
+					value = original;
+				} else {
+					nextPixel();
+				}
+			}
+		}
+		if (value != original) { // Store a pixel that was only partly written, but never touch the next one
+			raster.setPixel(pixel, value);
+		}
+	}
 }
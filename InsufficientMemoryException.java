@@ -0,0 +1,7 @@
+// By: Justin Spedding & Andrew Miller
+
+public class InsufficientMemoryException extends Exception {
+
+	private static final long serialVersionUID = 6021487325907416183L;
+
+}
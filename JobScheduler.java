@@ -0,0 +1,239 @@
+import java.util.PriorityQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// By: Justin Spedding & Andrew Miller
+
+public class JobScheduler {
+
+	public static final int PRIORITY_HIGH = 0; // Work whose result the user is waiting to save
+	public static final int PRIORITY_NORMAL = 1; // Previews
+	public static final int PRIORITY_LOW = 2; // Analysis, which only informs the user
+
+	private ThreadPoolExecutor executor; // Runs the jobs that have been admitted
+	private PriorityQueue<Job> queue; // The jobs waiting for a thread or for memory, highest priority first
+	private int maxJobs; // The most jobs that may run at the same time
+	private int activeJobs; // The number of jobs holding a thread and a reservation
+	private long submittedJobs; // The number of jobs ever submitted, which keeps jobs of equal priority in order
+	private long memoryBudget; // The most bytes the running jobs may reserve between them
+	private long reservedMemory; // The number of bytes reserved by the running jobs
+
+	/**
+	 * A job that has been submitted to the scheduler
+	 */
+	public class Job implements Runnable, Comparable<Job> {
+
+		private RunnableFuture<?> task; // The work to do
+		private int priority; // Lower values run first
+		private long memoryEstimate; // The most bytes the task is expected to use at once
+		private long order; // The order the job was submitted in
+
+		private Job(RunnableFuture<?> task, int priority, long memoryEstimate, long order) {
+			this.task = task;
+			this.priority = priority;
+			this.memoryEstimate = memoryEstimate;
+			this.order = order;
+		}
+
+		public void run() {
+			try {
+				task.run(); // Failures are kept by the task for whoever waits on it, and a cancelled task does nothing
+			} finally {
+				release(this);
+			}
+		}
+
+		/**
+		 * Cancels the job, removing it from the queue if it has not started yet or interrupting it if it has
+		 *
+		 * @return True if the job was cancelled, false if it had already finished
+		 */
+		public boolean cancel() {
+			boolean cancelled = task.cancel(true);
+			synchronized (JobScheduler.this) {
+				if (queue.remove(this)) { // It will never run, and the jobs behind it may fit now
+					dispatch();
+				}
+			}
+			return cancelled;
+		}
+
+		/**
+		 * Returns whether the job has finished, failed or been cancelled
+		 *
+		 * @return True if the job will do no more work
+		 */
+		public boolean isDone() {
+			return task.isDone();
+		}
+
+		/**
+		 * Returns the number of bytes the job reserves while it runs
+		 *
+		 * @return The memory estimate in bytes
+		 */
+		public long getMemoryEstimate() {
+			return memoryEstimate;
+		}
+
+		public int compareTo(Job other) {
+			if (priority != other.priority) {
+				return Integer.compare(priority, other.priority);
+			}
+			return Long.compare(order, other.order);
+		}
+	}
+
+	/**
+	 * Constructs a scheduler that runs a limited number of jobs at a time
+	 *
+	 * @param maxJobs
+	 * 			The most jobs that may run at the same time
+	 * @param memoryBudget
+	 * 			The most bytes the running jobs may reserve between them
+	 */
+	public JobScheduler(int maxJobs, long memoryBudget) {
+		this.maxJobs = maxJobs;
+		this.memoryBudget = memoryBudget;
+		queue = new PriorityQueue<Job>();
+		AtomicInteger threadCount = new AtomicInteger();
+		executor = new ThreadPoolExecutor(maxJobs, maxJobs, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), runnable -> {
+			Thread thread = new Thread(runnable, "Steganographer job " + threadCount.incrementAndGet());
+			thread.setDaemon(true); // Like SwingWorker's threads, these must not keep the program open
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Queues a task to run once a thread is free and its memory fits in the budget
+	 * A task whose estimate is bigger than the whole budget is rejected, since it could run the program out of memory
+	 * even on its own. A SwingWorker can be submitted instead of being executed, and still reports its progress and
+	 * result as usual.
+	 *
+	 * @param task
+	 * 			The task to run
+	 * @param priority
+	 * 			PRIORITY_HIGH, PRIORITY_NORMAL or PRIORITY_LOW
+	 * @param memoryEstimate
+	 * 			The most bytes the task is expected to use at once
+	 * @return The job, which can be used to cancel the task
+	 * @throws InsufficientMemoryException
+	 * 			Throws if the task is expected to use more memory than the whole budget
+	 */
+	public synchronized Job submit(RunnableFuture<?> task, int priority, long memoryEstimate) throws InsufficientMemoryException {
+		if (memoryEstimate > memoryBudget) {
+			throw new InsufficientMemoryException();
+		}
+		Job job = new Job(task, priority, memoryEstimate, submittedJobs++);
+		queue.add(job);
+		dispatch();
+		return job;
+	}
+
+	/**
+	 * Hands queued jobs to the threads, highest priority first, for as long as a thread is free and the next job fits
+	 * Jobs only take a thread once they are admitted, so a job waiting for memory never holds up one that could run.
+	 * A job that does not fit waits at the head of the queue instead of letting lower priority jobs past it, so it is
+	 * never starved by a stream of smaller ones.
+	 */
+	private synchronized void dispatch() {
+		while (activeJobs < maxJobs && !queue.isEmpty()) {
+			Job job = queue.peek();
+			if (job.task.isCancelled()) {
+				queue.poll();
+				continue;
+			}
+			if (activeJobs > 0 && reservedMemory + job.memoryEstimate > memoryBudget) { // A job the budget was lowered below still runs alone
+				return;
+			}
+			queue.poll();
+			reservedMemory += job.memoryEstimate;
+			activeJobs++;
+			executor.execute(job);
+		}
+	}
+
+	private synchronized void release(Job job) {
+		reservedMemory -= job.memoryEstimate;
+		activeJobs--;
+		dispatch();
+	}
+
+	/**
+	 * Returns the number of jobs running right now
+	 *
+	 * @return The number of running jobs
+	 */
+	public synchronized int getActiveJobCount() {
+		return activeJobs;
+	}
+
+	/**
+	 * Returns the number of jobs waiting for a thread or for memory
+	 *
+	 * @return The number of queued jobs
+	 */
+	public synchronized int getQueuedJobCount() {
+		return queue.size();
+	}
+
+	/**
+	 * Returns the most jobs that may run at the same time
+	 *
+	 * @return The number of job threads
+	 */
+	public synchronized int getMaxJobs() {
+		return maxJobs;
+	}
+
+	/**
+	 * Sets the most jobs that may run at the same time
+	 *
+	 * @param maxJobs
+	 * 			The number of job threads, at least 1
+	 */
+	public synchronized void setMaxJobs(int maxJobs) {
+		this.maxJobs = maxJobs;
+		if (maxJobs > executor.getMaximumPoolSize()) { // The maximum can never be below the core size
+			executor.setMaximumPoolSize(maxJobs);
+			executor.setCorePoolSize(maxJobs);
+		} else {
+			executor.setCorePoolSize(maxJobs);
+			executor.setMaximumPoolSize(maxJobs);
+		}
+		dispatch(); // More jobs may run now
+	}
+
+	/**
+	 * Returns the most bytes the running jobs may reserve between them
+	 *
+	 * @return The memory budget in bytes
+	 */
+	public synchronized long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Sets the most bytes the running jobs may reserve between them
+	 *
+	 * @param memoryBudget
+	 * 			The memory budget in bytes
+	 */
+	public synchronized void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+		dispatch(); // Waiting jobs may fit now
+	}
+
+	/**
+	 * Returns the number of bytes reserved by the running jobs
+	 *
+	 * @return The reserved memory in bytes
+	 */
+	public synchronized long getReservedMemory() {
+		return reservedMemory;
+	}
+}
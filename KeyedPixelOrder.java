@@ -0,0 +1,84 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// By: Justin Spedding & Andrew Miller
+
+public class KeyedPixelOrder extends PixelOrder {
+
+	private static final int ROUNDS = 4; // The number of Feistel rounds
+
+	private long pixelCount; // The size of the permuted domain
+	private int halfBits; // The number of bits in each half of a Feistel block
+	private long halfMask; // Masks a value down to one half of a Feistel block
+	private long[] roundKeys; // The key mixed into each round
+	private long[] multipliers; // The odd multiplier used to hash each round
+
+	/**
+	 * Constructs a pixel order that maps any position to its pixel in constant time and memory
+	 * The order is a balanced Feistel network over the smallest even power of two covering the pixels,
+	 * with values that land outside the image walked through the network again until they land inside it.
+	 *
+	 * @param pixelCount
+	 * 			The number of pixels in the host image
+	 * @param password
+	 * 			The password used to store the stego
+	 */
+	public KeyedPixelOrder(long pixelCount, String password) {
+		this.pixelCount = pixelCount;
+		halfBits = 1;
+		while ((1L << (halfBits * 2)) < pixelCount) {
+			halfBits++;
+		}
+		halfMask = (1L << halfBits) - 1;
+		roundKeys = new long[ROUNDS];
+		multipliers = new long[ROUNDS];
+		ByteBuffer digest = ByteBuffer.wrap(hash(password));
+		for (int i = 0; i < ROUNDS; i++) {
+			roundKeys[i] = digest.getLong(i * 8);
+			multipliers[i] = mix(roundKeys[i]) | 1; // Multiplicative hashing needs an odd multiplier
+		}
+	}
+
+	private static byte[] hash(String password) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // Every Java platform is required to support SHA-256
+		}
+	}
+
+	public long getPixel(long index) {
+		long value = index;
+		do { // Walk the cycle until the value is a real pixel
+			value = permute(value);
+		} while (value >= pixelCount);
+		return value;
+	}
+
+	public long getPixelCount() {
+		return pixelCount;
+	}
+
+	public long getMemoryUsage() {
+		return 16L * ROUNDS; // Only the round keys and multipliers
+	}
+
+	private long permute(long value) {
+		long left = value >>> halfBits;
+		long right = value & halfMask;
+		for (int i = 0; i < ROUNDS; i++) {
+			long temp = right;
+			right = left ^ (((right ^ roundKeys[i]) * multipliers[i]) >>> (64 - halfBits)); // Keep the best mixed high bits
+			left = temp;
+		}
+		return (left << halfBits) | right;
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
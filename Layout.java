@@ -0,0 +1,97 @@
+// By: Justin Spedding & Andrew Miller
+
+public enum Layout {
+
+	PIXEL_MAJOR(2, "Pixel-major keyed permutation"), // Pixels are visited in the keyed order, every low bit of a pixel before the next pixel
+	KEYED(1, "Keyed permutation"), // Pixels are visited in an order computed on demand from the password
+	SHUFFLED(0, "Shuffled array (v0.7)"); // Pixels are visited in the order of a shuffled array of every pixel
+
+	private int id; // The id stored in stego headers, which must never change
+	private String description; // The name shown to the user
+
+	private Layout(int id, String description) {
+		this.id = id;
+		this.description = description;
+	}
+
+	/**
+	 * Returns the layout with an id stored in a stego header
+	 *
+	 * @param id
+	 * 			The id of the layout
+	 * @return The layout, or null if no layout has the id
+	 */
+	public static Layout forId(int id) {
+		for (Layout layout : values()) {
+			if (layout.id == id) {
+				return layout;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the id stored in stego headers for this layout
+	 *
+	 * @return The id of the layout
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Creates the order in which this layout visits the pixels of a host image
+	 *
+	 * @param pixelCount
+	 * 			The number of pixels in the host image
+	 * @param password
+	 * 			The password used to store the stego
+	 * @return The pixel order
+	 */
+	public PixelOrder createPixelOrder(long pixelCount, String password) {
+		if (this == SHUFFLED) {
+			return new ShuffledPixelOrder(pixelCount, password);
+		}
+		return new KeyedPixelOrder(pixelCount, password);
+	}
+
+	/**
+	 * Returns the most pixels a host image can have for this layout to visit them
+	 *
+	 * @return The largest supported number of pixels
+	 */
+	public long getMaxPixelCount() {
+		if (this == SHUFFLED) {
+			return ShuffledPixelOrder.MAX_PIXELS; // The shuffled order is an array of every pixel
+		}
+		return 1L << 62; // Both halves of the keyed Feistel network must fit in a long
+	}
+
+	/**
+	 * Returns roughly how many bytes of memory the pixel order of this layout uses for a host image
+	 *
+	 * @param pixelCount
+	 * 			The number of pixels in the host image
+	 * @return The memory used by the pixel order in bytes
+	 */
+	public long getMemoryUsage(long pixelCount) {
+		if (this == SHUFFLED) {
+			return 4L * pixelCount; // An int for every pixel
+		}
+		return 0; // The keyed order is computed on demand
+	}
+
+	/**
+	 * Returns whether this layout accesses every bit of a pixel before moving on to the next pixel
+	 * Other layouts access one bit of every pixel before moving on to the next bit.
+	 *
+	 * @return True if the layout is pixel-major, false if it is pass-major
+	 */
+	public boolean isPixelMajor() {
+		return this == PIXEL_MAJOR;
+	}
+
+	public String toString() {
+		return description;
+	}
+}
@@ -0,0 +1,152 @@
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipException;
+
+// By: Justin Spedding & Andrew Miller
+
+public class LzInputStream extends FilterInputStream {
+
+	private byte[] block; // The current decompressed block
+	private int blockLength; // The number of bytes in the current block
+	private int blockPosition; // The next byte to read from the current block
+	private byte[] compressed; // The current compressed block
+	private boolean finished; // Whether the end of the stream has been read
+
+	/**
+	 * Constructs a stream that decompresses what an LzOutputStream wrote
+	 * Nothing past the end of the compressed stream is read, so it may be followed by other data.
+	 *
+	 * @param in
+	 * 			The stream to read the compressed bytes from
+	 */
+	public LzInputStream(InputStream in) {
+		super(in);
+		block = new byte[LzOutputStream.BLOCK_SIZE];
+		compressed = new byte[LzOutputStream.BLOCK_SIZE];
+	}
+
+	public int read() throws IOException {
+		if (blockPosition == blockLength && !readBlock()) {
+			return -1;
+		}
+		return block[blockPosition++] & 0xFF;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (blockPosition == blockLength && !readBlock()) {
+			return -1;
+		}
+		int n = Math.min(len, blockLength - blockPosition);
+		System.arraycopy(block, blockPosition, b, off, n);
+		blockPosition += n;
+		return n;
+	}
+
+	public int available() {
+		return blockLength - blockPosition;
+	}
+
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n && (blockPosition < blockLength || readBlock())) {
+			int step = (int) Math.min(n - skipped, blockLength - blockPosition);
+			blockPosition += step;
+			skipped += step;
+		}
+		return skipped;
+	}
+
+	public boolean markSupported() {
+		return false;
+	}
+
+	private boolean readBlock() throws IOException {
+		if (finished) {
+			return false;
+		}
+		int length = readInt();
+		if (length == 0) { // An empty block ends the stream
+			finished = true;
+			return false;
+		}
+		int compressedLength = readInt();
+		if (length < 0 || length > LzOutputStream.BLOCK_SIZE || compressedLength <= 0 || compressedLength > length) {
+			throw new ZipException("Invalid LZ block header");
+		}
+		if (compressedLength == length) { // Stored as is
+			readFully(block, length);
+		} else {
+			readFully(compressed, compressedLength);
+			decompressBlock(compressedLength, length);
+		}
+		blockLength = length;
+		blockPosition = 0;
+		return true;
+	}
+
+	private void decompressBlock(int compressedLength, int length) throws ZipException {
+		int i = 0;
+		int o = 0;
+		try {
+			while (true) {
+				int token = compressed[i++] & 0xFF;
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int extra;
+					do {
+						extra = compressed[i++] & 0xFF;
+						literals += extra;
+					} while (extra == 255);
+				}
+				System.arraycopy(compressed, i, block, o, literals);
+				i += literals;
+				o += literals;
+				if (i == compressedLength) { // The last literals have no match after them
+					break;
+				}
+				int offset = (compressed[i++] & 0xFF) | (compressed[i++] & 0xFF) << 8;
+				int matchLength = token & 15;
+				if (matchLength == 15) {
+					int extra;
+					do {
+						extra = compressed[i++] & 0xFF;
+						matchLength += extra;
+					} while (extra == 255);
+				}
+				matchLength += LzOutputStream.MIN_MATCH;
+				if (offset == 0 || offset > o || o + matchLength > length) {
+					throw new ZipException("Invalid LZ match");
+				}
+				for (int end = o + matchLength; o < end; o++) { // Byte by byte, since a match may overlap itself
+					block[o] = block[o - offset];
+				}
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new ZipException("Truncated LZ block");
+		}
+		if (o != length || i != compressedLength) {
+			throw new ZipException("Invalid LZ block length");
+		}
+	}
+
+	private int readInt() throws IOException {
+		byte[] bytes = new byte[4];
+		readFully(bytes, 4);
+		return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+	}
+
+	private void readFully(byte[] b, int len) throws IOException {
+		for (int off = 0; off < len;) {
+			int n = in.read(b, off, len - off);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			off += n;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+// By: Justin Spedding & Andrew Miller
+
+public class LzOutputStream extends FilterOutputStream {
+
+	public static final int BLOCK_SIZE = 1 << 16; // The most bytes compressed together, small enough for 2 byte match offsets
+	public static final int MIN_MATCH = 4; // Repeats shorter than this are stored as literals
+	private static final int HASH_BITS = 14; // The number of bits used to look up earlier occurrences of 4 bytes
+
+	private byte[] block; // The bytes waiting to be compressed
+	private int blockLength; // The number of bytes waiting to be compressed
+	private byte[] compressed; // The compressed block
+	private int[] table; // The last position each hash of 4 bytes was seen at in the block, or -1
+	private boolean finished; // Whether the end of the stream has been written
+
+	/**
+	 * Constructs a stream that compresses everything written to it with a fast LZ77 codec
+	 * The bytes are compressed in blocks, each one preceded by its length before and after compression, and the
+	 * stream ends with an empty block. Blocks that do not shrink are stored as is.
+	 *
+	 * @param out
+	 * 			The stream to write the compressed bytes to
+	 */
+	public LzOutputStream(OutputStream out) {
+		super(out);
+		block = new byte[BLOCK_SIZE];
+		compressed = new byte[BLOCK_SIZE + BLOCK_SIZE / 255 + 16];
+		table = new int[1 << HASH_BITS];
+	}
+
+	/**
+	 * Returns the most bytes that a number of bytes can take up once compressed, including the end of the stream
+	 *
+	 * @param length
+	 * 			The number of bytes to compress
+	 * @return The largest possible compressed size
+	 */
+	public static long getMaxSize(long length) {
+		return length + 8 * ((length + BLOCK_SIZE - 1) / BLOCK_SIZE) + 4;
+	}
+
+	public void write(int b) throws IOException {
+		block[blockLength++] = (byte) b;
+		if (blockLength == BLOCK_SIZE) {
+			writeBlock();
+		}
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, BLOCK_SIZE - blockLength);
+			System.arraycopy(b, off, block, blockLength, n);
+			blockLength += n;
+			off += n;
+			len -= n;
+			if (blockLength == BLOCK_SIZE) {
+				writeBlock();
+			}
+		}
+	}
+
+	public void flush() throws IOException {
+		writeBlock();
+		out.flush();
+	}
+
+	/**
+	 * Writes the last block and the end of the stream, then closes the underlying stream
+	 *
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 */
+	public void close() throws IOException {
+		if (!finished) {
+			finished = true;
+			writeBlock();
+			writeInt(0); // An empty block ends the stream
+		}
+		out.close();
+	}
+
+	private void writeBlock() throws IOException {
+		if (blockLength > 0) {
+			int compressedLength = compressBlock();
+			writeInt(blockLength);
+			if (compressedLength < blockLength) {
+				writeInt(compressedLength);
+				out.write(compressed, 0, compressedLength);
+			} else { // Store blocks that do not shrink as is
+				writeInt(blockLength);
+				out.write(block, 0, blockLength);
+			}
+			blockLength = 0;
+		}
+	}
+
+	private void writeInt(int value) throws IOException {
+		out.write(new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+	}
+
+	private int compressBlock() {
+		Arrays.fill(table, -1);
+		int anchor = 0; // The first byte not yet written
+		int misses = 0; // The number of lookups since the last match, which speeds up skipping over random bytes
+		int o = 0;
+		for (int i = 0; i <= blockLength - MIN_MATCH;) {
+			int sequence = readInt(block, i);
+			int hash = (sequence * -1640531535) >>> (32 - HASH_BITS);
+			int ref = table[hash];
+			table[hash] = i;
+			if (ref >= 0 && readInt(block, ref) == sequence) {
+				int length = MIN_MATCH;
+				while (i + length < blockLength && block[ref + length] == block[i + length]) {
+					length++;
+				}
+				o = writeSequence(anchor, i - anchor, i - ref, length, o);
+				i += length;
+				anchor = i;
+				misses = 0;
+			} else {
+				i += 1 + (misses++ >>> 6);
+			}
+		}
+		return writeSequence(anchor, blockLength - anchor, 0, 0, o); // The last literals have no match after them
+	}
+
+	private int writeSequence(int start, int literals, int offset, int length, int o) {
+		int token = o++;
+		int matchLength = length - MIN_MATCH;
+		compressed[token] = (byte) ((Math.min(literals, 15) << 4) | (length == 0 ? 0 : Math.min(matchLength, 15)));
+		o = writeLength(literals, o);
+		System.arraycopy(block, start, compressed, o, literals);
+		o += literals;
+		if (length > 0) {
+			compressed[o++] = (byte) offset;
+			compressed[o++] = (byte) (offset >>> 8);
+			o = writeLength(matchLength, o);
+		}
+		return o;
+	}
+
+	private int writeLength(int length, int o) { // Lengths that do not fit in 4 bits continue in extra bytes
+		if (length >= 15) {
+			for (length -= 15; length >= 255; length -= 255) {
+				compressed[o++] = (byte) 255;
+			}
+			compressed[o++] = (byte) length;
+		}
+		return o;
+	}
+
+	private static int readInt(byte[] bytes, int i) {
+		return (bytes[i] & 0xFF) | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF) << 16 | bytes[i + 3] << 24;
+	}
+}
@@ -2,6 +2,11 @@
 
 public class Main {
 	public static void main(String[] args) {
-		new MainGUI();
+		if (args.length == 0) {
+			new MainGUI();
+		} else { // Batch jobs from the command line never touch the screen
+			System.setProperty("java.awt.headless", "true");
+			System.exit(MainCLI.run(args));
+		}
 	}
 }
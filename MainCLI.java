@@ -0,0 +1,295 @@
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+// By: Justin Spedding & Andrew Miller
+
+public class MainCLI {
+
+	private static final String USAGE =
+			"Usage: java Main <encode|decode|analyze> [options] <image or directory>...\n" +
+			"  -s, --stego <file>      The file to hide in every host image (encode)\n" +
+			"  -o, --output <dir>      Where encoded images or decoded stegos are saved (encode, decode)\n" +
+			"  -p, --password <text>   The password used to store the stegos\n" +
+			"  -l, --list <file>       Also process every image or directory listed in a file, one per line\n" +
+			"  -t, --threads <n>       The most images processed at the same time\n" +
+			"  -m, --memory <MB>       The most memory the images processed at the same time may use\n" +
+			"      --layout <name>     keyed (the default), pixel-major or shuffled (encode)\n" +
+			"      --depth <n>         The number of low bits of each color to use, from 1 to 8 (the default) (encode)\n" +
+			"      --codec <name>      none, deflate or lz (encode)\n" +
+			"      --level <n>         The Deflate compression level, from 1 to 9 (encode)\n" +
+			"Directories are searched recursively and their structure is kept in the output directory. Each image is encoded\n" +
+			"to its own name with .bmp added, and decoded into a directory named after it with -decoded added.";
+
+	private String command; // encode, decode or analyze
+	private File stegoFile; // The file to hide
+	private File outputDir; // Where the results are saved
+	private String password = ""; // The password used to store the stegos
+	private int threads = Runtime.getRuntime().availableProcessors(); // The most images processed at the same time
+	private long memoryBudget = Runtime.getRuntime().maxMemory() / 4 * 3; // The most bytes the images processed at the same time may use
+	private List<File> inputs = new ArrayList<File>(); // The host images to process
+	private List<String> names = new ArrayList<String>(); // The path of each host image relative to the directory it was found in
+	private Map<String, File> outputs = new HashMap<String, File>(); // The host image saved to each output path, which is case-insensitive on some file systems
+	private AtomicInteger failures = new AtomicInteger(); // The number of images that could not be processed
+	private AtomicLong totalBytes = new AtomicLong(); // The number of stego bytes stored or retrieved
+	private AtomicLong totalImageBytes = new AtomicLong(); // The size of every host image file processed
+
+	/**
+	 * Runs a batch of jobs described by command line arguments, without starting AWT or Swing
+	 * Each image is processed on its own worker, and a line with its timing is printed as soon as it is done, followed
+	 * by the totals once every image has been processed. Fewer images are processed at once if their estimated memory
+	 * would not fit in the budget, and an image that would not fit on its own fails without being loaded.
+	 *
+	 * @param args
+	 * 			The command line arguments
+	 * @return The exit status, 0 if every image was processed, 1 if some failed and 2 if the arguments are invalid
+	 */
+	public static int run(String[] args) {
+		MainCLI cli = new MainCLI();
+		try {
+			cli.parse(args);
+		} catch (IllegalArgumentException | IOException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			return 2;
+		}
+		return cli.runJobs();
+	}
+
+	private void parse(String[] args) throws IOException {
+		if (args.length == 0 || !(args[0].equals("encode") || args[0].equals("decode") || args[0].equals("analyze"))) {
+			throw new IllegalArgumentException(args.length == 0 ? "No command given" : "Unknown command: " + args[0]);
+		}
+		command = args[0];
+		for (int i = 1; i < args.length; i++) {
+			String arg = args[i];
+			if (!arg.startsWith("-")) {
+				addInput(new File(arg));
+				continue;
+			}
+			if (i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + arg);
+			}
+			String value = args[++i];
+			if (arg.equals("-l") || arg.equals("--list")) { // Not parsed, so the errors of the images it lists are passed on as they are
+				List<String> lines;
+				try {
+					lines = Files.readAllLines(new File(value).toPath());
+				} catch (IOException e) {
+					throw new IllegalArgumentException("Cannot read list file: " + value);
+				}
+				for (String line : lines) {
+					if (!line.trim().isEmpty()) {
+						addInput(new File(line.trim()));
+					}
+				}
+				continue;
+			}
+			try {
+				if (arg.equals("-s") || arg.equals("--stego")) {
+					stegoFile = new File(value);
+				} else if (arg.equals("-o") || arg.equals("--output")) {
+					outputDir = new File(value);
+				} else if (arg.equals("-p") || arg.equals("--password")) {
+					password = value;
+				} else if (arg.equals("-t") || arg.equals("--threads")) {
+					threads = Integer.parseInt(value);
+				} else if (arg.equals("-m") || arg.equals("--memory")) {
+					memoryBudget = Long.parseLong(value) << 20;
+				} else if (arg.equals("--layout")) {
+					Steganographer.setLayout(Layout.valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_')));
+				} else if (arg.equals("--depth")) {
+					Steganographer.setDepth(Integer.parseInt(value));
+				} else if (arg.equals("--codec")) {
+					Steganographer.setCodec(Codec.valueOf(value.toUpperCase(Locale.ROOT)));
+				} else if (arg.equals("--level")) {
+					Steganographer.setCompressionLevel(Integer.parseInt(value));
+				} else {
+					throw new IllegalArgumentException("Unknown option: " + arg);
+				}
+			} catch (IllegalArgumentException e) { // Also catches numbers and names that cannot be parsed
+				throw new IllegalArgumentException("Invalid value for " + arg + ": " + value);
+			}
+		}
+		if (threads < 1 || memoryBudget < 1 || Steganographer.getDepth() < 1 || Steganographer.getDepth() > Steganographer.MAX_DEPTH) {
+			throw new IllegalArgumentException("The thread count, memory and depth must be positive, and the depth at most 8");
+		}
+		if (!command.equals("analyze") && outputDir == null) {
+			throw new IllegalArgumentException("No output directory given");
+		}
+		if (command.equals("encode") && (stegoFile == null || !stegoFile.isFile())) {
+			throw new IllegalArgumentException("No valid stego given");
+		}
+		if (inputs.isEmpty()) {
+			throw new IllegalArgumentException("No images found");
+		}
+	}
+
+	private void addInput(File input) throws IOException {
+		if (input.isDirectory()) {
+			Set<String> suffixes = new HashSet<String>();
+			for (String suffix : ImageIO.getReaderFileSuffixes()) {
+				suffixes.add(suffix.toLowerCase(Locale.ROOT));
+			}
+			Path root = input.toPath();
+			List<Path> images = new ArrayList<Path>();
+			try (Stream<Path> paths = Files.walk(root)) {
+				paths.filter(Files::isRegularFile).sorted().forEach(path -> {
+					String name = path.getFileName().toString();
+					int dot = name.lastIndexOf('.');
+					if (dot > 0 && suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))) { // Skip files that are not images
+						images.add(path);
+					}
+				});
+			}
+			for (Path path : images) {
+				addImage(path.toFile(), root.relativize(path).toString());
+			}
+		} else if (input.isFile()) {
+			addImage(input, input.getName());
+		} else {
+			throw new IllegalArgumentException("No such file or directory: " + input);
+		}
+	}
+
+	private void addImage(File input, String name) throws IOException {
+		File image = input.getCanonicalFile();
+		String output = command.equals("analyze") ? image.getPath() : name.toLowerCase(Locale.ROOT); // Outputs are named after the image, and nothing is saved when analyzing
+		File other = outputs.putIfAbsent(output, image);
+		if (other == null) {
+			inputs.add(input);
+			names.add(name);
+		} else if (!other.equals(image)) {
+			throw new IllegalArgumentException(other + " and " + image + " would be saved to the same output");
+		} // The same image given twice is only processed once
+	}
+
+	private int runJobs() {
+		JobScheduler scheduler = new JobScheduler(threads, memoryBudget);
+		List<Future<?>> jobs = new ArrayList<Future<?>>();
+		long start = System.nanoTime();
+		for (int i = 0; i < inputs.size(); i++) {
+			final File input = inputs.get(i);
+			final String name = names.get(i);
+			FutureTask<Void> job = new FutureTask<Void>(() -> runJob(input, name), null);
+			try {
+				scheduler.submit(job, JobScheduler.PRIORITY_NORMAL, estimateMemory(input)); // Only the size is read here
+				jobs.add(job);
+			} catch (IOException | InsufficientMemoryException e) { // The image could not be read, or could never fit
+				failures.incrementAndGet();
+				report(0, input, e instanceof InsufficientMemoryException ? "FAIL Not enough memory" : describe(e));
+			}
+		}
+		for (Future<?> job : jobs) {
+			try {
+				job.get();
+			} catch (InterruptedException | ExecutionException e) { // Jobs report their own failures, so this is a bug
+				failures.incrementAndGet();
+				e.printStackTrace();
+			}
+		}
+		double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+		System.out.printf(Locale.ROOT, "%d images, %d failed, %.1f s, %.1f images/s, %.2f MB/s of images, %.2f MB/s of stegos%n",
+				inputs.size(), failures.get(), seconds, inputs.size() / seconds, totalImageBytes.get() / seconds / 1e6, totalBytes.get() / seconds / 1e6);
+		return failures.get() == 0 ? 0 : 1;
+	}
+
+	private void runJob(File input, String name) {
+		long start = System.nanoTime();
+		String result;
+		try {
+			if (command.equals("encode")) {
+				result = encode(input, name);
+			} else if (command.equals("decode")) {
+				result = decode(input, name);
+			} else {
+				result = analyze(input);
+			}
+			totalImageBytes.addAndGet(input.length());
+		} catch (Exception e) { // One bad image must not stop the batch
+			failures.incrementAndGet();
+			result = describe(e);
+		}
+		report(System.nanoTime() - start, input, result);
+	}
+
+	private long estimateMemory(File input) throws IOException {
+		Dimension size = HostRaster.readSize(input);
+		if (command.equals("encode")) {
+			return SegmentedEncoder.estimatePeakMemoryUsage(size.width, size.height, stegoFile.length(), Steganographer.getLayout(), Steganographer.getCodec());
+		} else if (command.equals("decode")) {
+			return SegmentedDecoder.estimatePeakMemoryUsage(size.width, size.height);
+		}
+		return SegmentedAnalyzer.estimatePeakMemoryUsage(size.width, size.height, null, 0);
+	}
+
+	private static void report(long nanos, File input, String result) {
+		System.out.printf(Locale.ROOT, "%8.1f ms  %s  %s%n", nanos / 1e6, input.getPath(), result);
+	}
+
+	private static String describe(Exception e) {
+		return "FAIL " + (e.getMessage() == null ? e.getClass().getSimpleName() : e.getClass().getSimpleName() + ": " + e.getMessage());
+	}
+
+	private String encode(File input, String name) throws Exception {
+		SegmentedEncoder encoder = new SegmentedEncoder(input.getPath(), stegoFile.getPath(), password);
+		try {
+			while (encoder.hasNext()) {
+				encoder.nextSegment();
+			}
+			File output = new File(outputDir, name + ".bmp"); // The extension is kept, so images that differ only by it do not overwrite each other
+			output.getParentFile().mkdirs();
+			encoder.getEncodedRaster().write(output); // Streamed a row at a time, however big the image is
+			totalBytes.addAndGet(stegoFile.length());
+			return "OK " + stegoFile.length() + " bytes -> " + output.getPath();
+		} finally {
+			encoder.close();
+		}
+	}
+
+	private String decode(File input, String name) throws Exception {
+		File output = new File(outputDir, name + "-decoded"); // Each image gets its own directory, since stegos may share names, which cannot be the image itself
+		output.mkdirs();
+		SegmentedDecoder decoder;
+		try {
+			decoder = new SegmentedDecoder(input.getPath(), output.getPath(), password);
+		} catch (Exception e) {
+			output.delete(); // Only removed if nothing was saved in it
+			throw e;
+		}
+		try {
+			while (decoder.hasNext()) {
+				decoder.nextSegment();
+			}
+			totalBytes.addAndGet(decoder.getFileSize());
+			return "OK " + decoder.getFileSize() + " bytes -> " + output.getPath();
+		} finally {
+			decoder.close();
+		}
+	}
+
+	private String analyze(File input) throws Exception {
+		SegmentedAnalyzer analyzer = new SegmentedAnalyzer(input.getPath()); // The images themselves are already spread over the workers
+		while (analyzer.hasNext()) {
+			analyzer.nextSegment();
+		}
+		return analyzer.getValue() ? "STEGO" : "CLEAN";
+	}
+}
@@ -15,7 +15,7 @@ public class MainGUI implements WindowListener, ActionListener {
 	private JFrame window; // Main window
 	private JButton encodeButton, decodeButton, analyzeButton; // Buttons
 	private JMenuItem encodeMenuItem, decodeMenuItem, analyzeMenuItem, exitMenuItem; // File menu items
-	private JMenuItem markerMenuItem; // Settings menu items
+	private JMenuItem markerMenuItem, layoutMenuItem, depthMenuItem, compressionMenuItem, memoryMenuItem; // Settings menu items
 	private JMenuItem helpMenuItem; // Help menu items
 	private String helpText; // The text from the help file
 
@@ -59,6 +59,18 @@ public class MainGUI implements WindowListener, ActionListener {
 		markerMenuItem = new JMenuItem("Set marker...");
 		markerMenuItem.addActionListener(this);
 		settingsMenu.add(markerMenuItem);
+		layoutMenuItem = new JMenuItem("Set layout...");
+		layoutMenuItem.addActionListener(this);
+		settingsMenu.add(layoutMenuItem);
+		depthMenuItem = new JMenuItem("Set depth...");
+		depthMenuItem.addActionListener(this);
+		settingsMenu.add(depthMenuItem);
+		compressionMenuItem = new JMenuItem("Set compression...");
+		compressionMenuItem.addActionListener(this);
+		settingsMenu.add(compressionMenuItem);
+		memoryMenuItem = new JMenuItem("Set memory budget...");
+		memoryMenuItem.addActionListener(this);
+		settingsMenu.add(memoryMenuItem);
 
 	    // Create help menu
 	    JMenu helpMenu = new JMenu("Help");
@@ -142,6 +154,46 @@ public class MainGUI implements WindowListener, ActionListener {
 			if (marker != null) {
 				Steganographer.setMarker(marker);
 			}
+		} else if (obj.equals(layoutMenuItem)) {
+			Object layout = JOptionPane.showInputDialog(null, "Choose the layout for new stegos:\n(Stegos are always decoded with the layout they were encoded with)", "Set layout", JOptionPane.PLAIN_MESSAGE, null, Layout.values(), Steganographer.getLayout());
+			if (layout != null) {
+				Steganographer.setLayout((Layout) layout);
+			}
+		} else if (obj.equals(depthMenuItem)) {
+			Integer[] depths = new Integer[Steganographer.MAX_DEPTH];
+			for (int i = 0; i < depths.length; i++) {
+				depths[i] = i + 1;
+			}
+			Object depth = JOptionPane.showInputDialog(null, "Choose how many low bits of each color new stegos may use:\n(" + Steganographer.MAX_DEPTH + " fits as much as v0.7. With the pixel-major layout, fewer bits are easier to hide but fit less)", "Set depth", JOptionPane.PLAIN_MESSAGE, null, depths, Steganographer.getDepth());
+			if (depth != null) {
+				Steganographer.setDepth((Integer) depth);
+			}
+		} else if (obj.equals(compressionMenuItem)) {
+			Object codec = JOptionPane.showInputDialog(null, "Choose how to compress new stegos:\n(Compressed stegos encode faster and fit in smaller images)", "Set compression", JOptionPane.PLAIN_MESSAGE, null, Codec.values(), Steganographer.getCodec());
+			if (codec == Codec.DEFLATE) {
+				Integer[] levels = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+				Object level = JOptionPane.showInputDialog(null, "Choose the Deflate level:\n(1 = fastest, 9 = smallest)", "Set compression", JOptionPane.PLAIN_MESSAGE, null, levels, 6);
+				if (level != null) {
+					Steganographer.setCompressionLevel((Integer) level);
+					Steganographer.setCodec(Codec.DEFLATE);
+				}
+			} else if (codec != null) {
+				Steganographer.setCodec((Codec) codec);
+			}
+		} else if (obj.equals(memoryMenuItem)) {
+			long maxMemory = Runtime.getRuntime().maxMemory() >> 20;
+			String budget = JOptionPane.showInputDialog(null, "Enter the most megabytes of memory operations may use at once:\n(Operations wait until they fit, and ones that never could are refused. At most " + maxMemory + ")", Steganographer.getScheduler().getMemoryBudget() >> 20);
+			if (budget != null) {
+				try {
+					long megabytes = Long.parseLong(budget.trim());
+					if (megabytes < 1 || megabytes > maxMemory) {
+						throw new NumberFormatException();
+					}
+					Steganographer.getScheduler().setMemoryBudget(megabytes << 20);
+				} catch (NumberFormatException e) {
+					JOptionPane.showMessageDialog(null, "Invalid memory budget.");
+				}
+			}
 		} else if (obj.equals(helpMenuItem)) {
 			JOptionPane.showMessageDialog(null, helpText);
 		}
@@ -176,7 +228,7 @@ public class MainGUI implements WindowListener, ActionListener {
 	}
 
 	public void exit() {
-		if (Steganographer.getWorkerCount() == 0 || JOptionPane.showConfirmDialog(null, "One or more encode/decode operations are currently running.\nBy closing this window, all of these operations will be stopped.\nAre you sure you want to exit?", "Close?",  JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+		if (Steganographer.getWorkerCount() == 0 || JOptionPane.showConfirmDialog(null, "One or more operations are currently running or waiting to run.\nBy closing this window, all of these operations will be stopped.\nAre you sure you want to exit?", "Close?",  JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
 			window.setVisible(false);
 			System.exit(0);
 		}
@@ -0,0 +1,115 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import javax.imageio.ImageReadParam;
+
+// By: Justin Spedding & Andrew Miller
+
+public class OffHeapRaster extends HostRaster {
+
+	private static final int CHUNK_BITS = 27; // Each direct buffer holds 2^27 pixels, well under the 2 GiB limit of a buffer
+	private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+	private static final int STRIP_PIXELS = 1 << 22; // The most pixels decoded onto the heap at once while loading
+
+	private int width; // The width of the image
+	private int height; // The height of the image
+	private IntBuffer[] chunks; // The packed RGB values of the image, row after row, split across direct buffers
+
+	/**
+	 * Constructs a black raster whose pixels are stored outside the heap, so it can hold more than 2^31 of them
+	 *
+	 * @param width
+	 * 			The width of the image
+	 * @param height
+	 * 			The height of the image
+	 */
+	public OffHeapRaster(int width, int height) {
+		this.width = width;
+		this.height = height;
+		long pixelCount = (long) width * height;
+		chunks = new IntBuffer[(int) ((pixelCount + CHUNK_MASK) >>> CHUNK_BITS)];
+		for (int i = 0; i < chunks.length; i++) {
+			int chunkPixels = (int) Math.min(1L << CHUNK_BITS, pixelCount - ((long) i << CHUNK_BITS));
+			chunks[i] = ByteBuffer.allocateDirect(chunkPixels * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+	}
+
+	/**
+	 * Decodes an image a strip of rows at a time into a new raster outside the heap
+	 *
+	 * @param reader
+	 * 			The image reader, with its input set to the image
+	 * @return The raster holding the image
+	 * @throws IOException
+	 * 			Throws if the image cannot be decoded
+	 */
+	public static OffHeapRaster read(javax.imageio.ImageReader reader) throws IOException {
+		int width = reader.getWidth(0);
+		int height = reader.getHeight(0);
+		OffHeapRaster raster = new OffHeapRaster(width, height);
+		int stripRows = Math.max(1, STRIP_PIXELS / width);
+		int[] rgbRow = new int[width];
+		for (int y = 0; y < height; y += stripRows) {
+			ImageReadParam param = reader.getDefaultReadParam();
+			param.setSourceRegion(new Rectangle(0, y, width, Math.min(stripRows, height - y)));
+			BufferedImage strip = reader.read(0, param);
+			for (int row = 0; row < strip.getHeight(); row++) {
+				strip.getRGB(0, row, width, 1, rgbRow, 0, width);
+				raster.setRow(y + row, rgbRow);
+			}
+		}
+		return raster;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getPixel(long pixel) {
+		return chunks[(int) (pixel >>> CHUNK_BITS)].get((int) pixel & CHUNK_MASK);
+	}
+
+	public void setPixel(long pixel, int rgb) {
+		chunks[(int) (pixel >>> CHUNK_BITS)].put((int) pixel & CHUNK_MASK, rgb);
+	}
+
+	public void getRow(int y, int[] rgbRow) {
+		long pixel = (long) y * width;
+		for (int x = 0; x < width;) { // A row may straddle two buffers
+			IntBuffer chunk = chunks[(int) (pixel >>> CHUNK_BITS)];
+			int offset = (int) pixel & CHUNK_MASK;
+			int n = Math.min(width - x, chunk.capacity() - offset);
+			chunk.get(offset, rgbRow, x, n);
+			x += n;
+			pixel += n;
+		}
+	}
+
+	public void setRow(int y, int[] rgbRow) {
+		long pixel = (long) y * width;
+		for (int x = 0; x < width;) {
+			IntBuffer chunk = chunks[(int) (pixel >>> CHUNK_BITS)];
+			int offset = (int) pixel & CHUNK_MASK;
+			int n = Math.min(width - x, chunk.capacity() - offset);
+			chunk.put(offset, rgbRow, x, n);
+			x += n;
+			pixel += n;
+		}
+	}
+
+	public long getMemoryUsage() {
+		return 4L * width * height;
+	}
+
+	public BufferedImage getImage() {
+		return null;
+	}
+}
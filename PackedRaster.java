@@ -0,0 +1,86 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+
+import javax.imageio.ImageReadParam;
+
+// By: Justin Spedding & Andrew Miller
+
+public class PackedRaster extends HostRaster {
+
+	private static final int STRIP_PIXELS = 1 << 20; // The most pixels decoded in the file's color model at once
+
+	private BufferedImage image; // The packed image
+	private int[] pixels; // The packed RGB values backing the image, one int per pixel
+	private int width; // The width of the image
+
+	/**
+	 * Constructs a raster over the packed pixels of an image on the heap
+	 *
+	 * @param image
+	 * 			The image, which is copied once if it is not already packed
+	 */
+	public PackedRaster(BufferedImage image) {
+		this.image = ImageManipulator.toPackedImage(image);
+		pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+		width = this.image.getWidth();
+	}
+
+	/**
+	 * Decodes an image a strip of rows at a time straight into a packed image
+	 * Only a strip is ever held in the file's own color model, instead of a whole second copy of the image.
+	 *
+	 * @param reader
+	 * 			The image reader, with its input set to the image
+	 * @return The raster holding the image
+	 * @throws IOException
+	 * 			Throws if the image cannot be decoded
+	 */
+	public static PackedRaster read(javax.imageio.ImageReader reader) throws IOException {
+		int width = reader.getWidth(0);
+		int height = reader.getHeight(0);
+		int type = reader.getImageTypes(0).next().getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		PackedRaster raster = new PackedRaster(new BufferedImage(width, height, type));
+		int stripRows = Math.max(1, STRIP_PIXELS / width);
+		for (int y = 0; y < height; y += stripRows) {
+			ImageReadParam param = reader.getDefaultReadParam();
+			param.setSourceRegion(new Rectangle(0, y, width, Math.min(stripRows, height - y)));
+			BufferedImage strip = reader.read(0, param);
+			strip.getRGB(0, 0, width, strip.getHeight(), raster.pixels, y * width, width);
+		}
+		return raster;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return image.getHeight();
+	}
+
+	public int getPixel(long pixel) {
+		return pixels[(int) pixel];
+	}
+
+	public void setPixel(long pixel, int rgb) {
+		pixels[(int) pixel] = rgb;
+	}
+
+	public void getRow(int y, int[] rgbRow) {
+		System.arraycopy(pixels, y * width, rgbRow, 0, width);
+	}
+
+	public void setRow(int y, int[] rgbRow) {
+		System.arraycopy(rgbRow, 0, pixels, y * width, width);
+	}
+
+	public long getMemoryUsage() {
+		return 4L * pixels.length;
+	}
+
+	public BufferedImage getImage() {
+		return image;
+	}
+}
@@ -0,0 +1,113 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+// By: Justin Spedding & Andrew Miller
+
+public class ParallelDecoder {
+
+	private static final int MIN_TASK_BYTES = 16384; // Ranges smaller than this are not split any further
+
+	private ForkJoinPool pool; // The threads that read the bits
+	private AtomicLong bytesRead; // The number of bytes read by every task so far
+
+	/**
+	 * Constructs a decoding engine that reads disjoint ranges of bytes on separate threads
+	 *
+	 * @param pool
+	 * 			The threads to read with
+	 */
+	public ParallelDecoder(ForkJoinPool pool) {
+		this.pool = pool;
+		bytesRead = new AtomicLong();
+	}
+
+	/**
+	 * Reads bytes from the next bits in the image until a buffer is full
+	 * Each range is stored at its own offset in the buffer, so the bytes end up in order no matter which range
+	 * finishes first.
+	 *
+	 * @param imageReader
+	 * 			The image reader to use, which is left positioned after the last byte
+	 * @param dst
+	 * 			The buffer to store the bytes in, its position is advanced to its limit
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to read from a pixel that does not exist
+	 */
+	public void readBytes(ImageReader imageReader, ByteBuffer dst) throws ImageOverflowException {
+		long position = imageReader.getPosition();
+		int len = dst.remaining();
+		if (len > 0) {
+			try {
+				pool.invoke(new ReadTask(imageReader, dst, dst.position(), len, position));
+			} catch (OverflowError e) {
+				throw e.getCause();
+			}
+			dst.position(dst.limit());
+		}
+		imageReader.seek(position + len * 8L);
+	}
+
+	/**
+	 * Returns the number of bytes read so far, including those read by tasks that are still running
+	 *
+	 * @return The number of bytes read so far
+	 */
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	private class ReadTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 7102968440385571283L;
+		private ImageReader imageReader; // The image reader to copy
+		private ByteBuffer dst; // The buffer to store the bytes in
+		private int off; // The index in the buffer to store the first byte at
+		private int len; // The number of bytes to read
+		private long position; // The position of the first bit to read
+
+		private ReadTask(ImageReader imageReader, ByteBuffer dst, int off, int len, long position) {
+			this.imageReader = imageReader;
+			this.dst = dst;
+			this.off = off;
+			this.len = len;
+			this.position = position;
+		}
+
+		protected void compute() {
+			if (len <= MIN_TASK_BYTES) {
+				try {
+					ImageReader rangeReader = new ImageReader(imageReader); // Each range gets its own position
+					rangeReader.seek(position);
+					if (dst.hasArray()) { // Read straight into the backing array
+						rangeReader.readBytes(dst.array(), dst.arrayOffset() + off, len);
+					} else {
+						byte[] block = new byte[len];
+						rangeReader.readBytes(block, 0, len);
+						dst.put(off, block); // Absolute writes leave the shared buffer's position alone
+					}
+				} catch (ImageOverflowException e) {
+					throw new OverflowError(e);
+				}
+				bytesRead.addAndGet(len);
+			} else {
+				int half = len / 2;
+				invokeAll(new ReadTask(imageReader, dst, off, half, position), new ReadTask(imageReader, dst, off + half, len - half, position + half * 8L));
+			}
+		}
+	}
+
+	private static class OverflowError extends RuntimeException { // Carries an ImageOverflowException out of a task
+
+		private static final long serialVersionUID = -1932740563104527745L;
+
+		private OverflowError(ImageOverflowException cause) {
+			super(cause);
+		}
+
+		public ImageOverflowException getCause() {
+			return (ImageOverflowException) super.getCause();
+		}
+	}
+}
@@ -0,0 +1,151 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+// By: Justin Spedding & Andrew Miller
+
+public class ParallelEncoder {
+
+	private static final int MIN_TASK_BYTES = 16384; // Ranges smaller than this are not split any further
+
+	private ForkJoinPool pool; // The threads that write the bits
+	private AtomicLong bytesWritten; // The number of bytes written by every task so far
+
+	/**
+	 * Constructs an encoding engine that writes disjoint ranges of bytes on separate threads
+	 *
+	 * @param pool
+	 * 			The threads to write with
+	 */
+	public ParallelEncoder(ForkJoinPool pool) {
+		this.pool = pool;
+		bytesWritten = new AtomicLong();
+	}
+
+	/**
+	 * Writes a block of bytes to the next bits in the image, exactly as ImageWriter.writeBytes would
+	 * Bits are only written in parallel within a single pass over the pixels, where every pixel is visited once, and
+	 * ranges are only split where a visit to a pixel starts, so no two threads ever modify the same pixel at the same time.
+	 * Pass-major layouts visit a pixel for every bit, so their ranges may start at any bit, not only at a whole byte.
+	 *
+	 * @param imageWriter
+	 * 			The image writer to use, which is left positioned after the last byte
+	 * @param src
+	 * 			The array holding the bytes to write
+	 * @param off
+	 * 			The index of the first byte to write
+	 * @param len
+	 * 			The number of bytes to write
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public void writeBytes(ImageWriter imageWriter, byte[] src, int off, int len) throws ImageOverflowException {
+		writeBytes(imageWriter, ByteBuffer.wrap(src, off, len));
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer to the next bits in the image, exactly as ImageWriter.writeBytes would
+	 *
+	 * @param imageWriter
+	 * 			The image writer to use, which is left positioned after the last byte
+	 * @param src
+	 * 			The buffer holding the bytes to write, its position is advanced to its limit
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public void writeBytes(ImageWriter imageWriter, ByteBuffer src) throws ImageOverflowException {
+		long position = imageWriter.getPosition();
+		while (src.hasRemaining()) {
+			int passBytes = (int) Math.min(src.remaining(), (imageWriter.getPassEnd() - position) / 8); // Whole bytes left in this pass
+			int pixelBits = imageWriter.getPixelBits();
+			int granule = getGranule(pixelBits);
+			if (passBytes > 0 && (pixelBits == 1 || position % (granule * 8L) == 0)) { // Ranges must start where a visit to a pixel starts, which is every bit in a pass-major pass
+				try {
+					pool.invoke(new WriteTask(imageWriter, src, src.position(), passBytes, position, granule));
+				} catch (OverflowError e) {
+					throw e.getCause();
+				}
+				src.position(src.position() + passBytes);
+			} else { // The next byte is split between two passes or shares a pixel with the last one, so write it on this thread
+				passBytes = 1;
+				imageWriter.writeBytes(new byte[] {src.get()}, 0, passBytes);
+				bytesWritten.addAndGet(passBytes);
+			}
+			position += passBytes * 8L;
+			imageWriter.seek(position);
+		}
+	}
+
+	private static int getGranule(int pixelBits) { // The fewest whole bytes that fill whole visits to pixels
+		int bits = pixelBits;
+		while (bits % 8 != 0) {
+			bits += pixelBits;
+		}
+		return bits / 8;
+	}
+
+	/**
+	 * Returns the number of bytes written so far, including those written by tasks that are still running
+	 *
+	 * @return The number of bytes written so far
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	private class WriteTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -2620391743151843507L;
+		private ImageWriter imageWriter; // The image writer to copy
+		private ByteBuffer src; // The buffer holding the bytes to write
+		private int off; // The index in the buffer of the first byte to write
+		private int len; // The number of bytes to write
+		private long position; // The position of the first bit to write
+		private int granule; // The number of bytes the range may only be split at multiples of
+
+		private WriteTask(ImageWriter imageWriter, ByteBuffer src, int off, int len, long position, int granule) {
+			this.imageWriter = imageWriter;
+			this.src = src;
+			this.off = off;
+			this.len = len;
+			this.position = position;
+			this.granule = granule;
+		}
+
+		protected void compute() {
+			if (len <= MIN_TASK_BYTES) {
+				try {
+					ImageWriter rangeWriter = new ImageWriter(imageWriter); // Each range gets its own position
+					rangeWriter.seek(position);
+					if (src.hasArray()) { // Write straight out of the backing array
+						rangeWriter.writeBytes(src.array(), src.arrayOffset() + off, len);
+					} else {
+						byte[] block = new byte[len];
+						src.get(off, block); // Absolute reads leave the shared buffer's position alone
+						rangeWriter.writeBytes(block, 0, len);
+					}
+				} catch (ImageOverflowException e) {
+					throw new OverflowError(e);
+				}
+				bytesWritten.addAndGet(len);
+			} else {
+				int half = len / 2 / granule * granule;
+				invokeAll(new WriteTask(imageWriter, src, off, half, position, granule), new WriteTask(imageWriter, src, off + half, len - half, position + half * 8L, granule));
+			}
+		}
+	}
+
+	private static class OverflowError extends RuntimeException { // Carries an ImageOverflowException out of a task
+
+		private static final long serialVersionUID = 3604217953322386705L;
+
+		private OverflowError(ImageOverflowException cause) {
+			super(cause);
+		}
+
+		public ImageOverflowException getCause() {
+			return (ImageOverflowException) super.getCause();
+		}
+	}
+}
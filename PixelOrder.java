@@ -0,0 +1,27 @@
+// By: Justin Spedding & Andrew Miller
+
+public abstract class PixelOrder {
+
+	/**
+	 * Returns the pixel to visit at a position in the order
+	 *
+	 * @param index
+	 * 			The position in the order, from 0 to getPixelCount() - 1
+	 * @return The row-major index of the pixel in the host image
+	 */
+	public abstract long getPixel(long index);
+
+	/**
+	 * Returns the number of pixels in the order
+	 *
+	 * @return The number of pixels in the host image
+	 */
+	public abstract long getPixelCount();
+
+	/**
+	 * Returns roughly how many bytes of memory the order holds on to
+	 *
+	 * @return The memory used by the order in bytes
+	 */
+	public abstract long getMemoryUsage();
+}
@@ -0,0 +1,129 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// By: Justin Spedding & Andrew Miller
+
+public class PixelOrderCache {
+
+	private static final long ENTRY_OVERHEAD = 128; // Rough number of bytes each entry costs besides the order itself
+
+	private static LinkedHashMap<Key, PixelOrder> orders = new LinkedHashMap<Key, PixelOrder>(16, 0.75f, true); // Least recently used first
+	private static long capacity = Runtime.getRuntime().maxMemory() / 8; // The most bytes the cached orders may use
+	private static long size; // The number of bytes the cached orders use
+
+	/**
+	 * Returns the pixel order a layout uses for a host image, generating it only if it is not cached
+	 * Orders are shared between every image reader and writer, so they must never be modified.
+	 *
+	 * @param layout
+	 * 			The layout the order belongs to
+	 * @param pixelCount
+	 * 			The number of pixels in the host image
+	 * @param password
+	 * 			The password used to store the stego
+	 * @return The pixel order
+	 */
+	public static PixelOrder getPixelOrder(Layout layout, long pixelCount, String password) {
+		Key key = new Key(layout, pixelCount, password);
+		synchronized (PixelOrderCache.class) {
+			PixelOrder pixelOrder = orders.get(key);
+			if (pixelOrder != null) {
+				return pixelOrder;
+			}
+		}
+		PixelOrder pixelOrder = layout.createPixelOrder(pixelCount, password); // Generate outside the lock so other lookups are not held up
+		long orderSize = pixelOrder.getMemoryUsage() + ENTRY_OVERHEAD;
+		synchronized (PixelOrderCache.class) {
+			if (orderSize <= capacity && !orders.containsKey(key)) {
+				orders.put(key, pixelOrder);
+				size += orderSize;
+				evict();
+			}
+		}
+		return pixelOrder;
+	}
+
+	private static void evict() {
+		Iterator<Map.Entry<Key, PixelOrder>> iterator = orders.entrySet().iterator();
+		while (size > capacity && iterator.hasNext()) { // Drop the least recently used orders until everything fits
+			size -= iterator.next().getValue().getMemoryUsage() + ENTRY_OVERHEAD;
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Returns the most bytes the cached orders may use
+	 *
+	 * @return The capacity of the cache in bytes
+	 */
+	public static synchronized long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Sets the most bytes the cached orders may use, evicting orders if they no longer fit
+	 *
+	 * @param capacity
+	 * 			The capacity of the cache in bytes, 0 disables caching
+	 */
+	public static synchronized void setCapacity(long capacity) {
+		PixelOrderCache.capacity = capacity;
+		evict();
+	}
+
+	/**
+	 * Returns the number of bytes the cached orders use
+	 *
+	 * @return The size of the cache in bytes
+	 */
+	public static synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Removes every cached order
+	 */
+	public static synchronized void clear() {
+		orders.clear();
+		size = 0;
+	}
+
+	private static class Key {
+
+		private Layout layout;
+		private long pixelCount;
+		private byte[] passwordHash; // The cache outlives every popup, so it never holds the password itself
+
+		private Key(Layout layout, long pixelCount, String password) {
+			this.layout = layout;
+			this.pixelCount = pixelCount;
+			this.passwordHash = hash(password);
+		}
+
+		private static byte[] hash(String password) {
+			try {
+				return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e); // Every Java platform is required to support SHA-256
+			}
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return layout == other.layout && pixelCount == other.pixelCount && Arrays.equals(passwordHash, other.passwordHash);
+		}
+
+		public int hashCode() {
+			return Objects.hash(layout, pixelCount, Arrays.hashCode(passwordHash));
+		}
+	}
+}
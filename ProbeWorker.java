@@ -0,0 +1,85 @@
+import javax.imageio.IIOException;
+import javax.swing.SwingWorker;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+// By: Justin Spedding & Andrew Miller
+
+public class ProbeWorker extends SwingWorker<String, Void> {
+
+	private static final int PREVIEW_SIZE = 2048; // The most pixels across or down a preview of an image too big for the heap
+
+	private String hostImagePath, password; // Remembered until the host image is loaded
+	private long memoryEstimate; // The most bytes the probe is expected to use at once
+	private BufferedImage preview; // The host image, or a smaller copy of it, once the probe is done
+
+	/**
+	 * Constructs a worker that loads the host image and looks for a stego in it once it runs
+	 * Only the header of the host image is read here, to estimate the memory the probe needs.
+	 *
+	 * @param hostImagePath
+	 * 			The path to the host image
+	 * @param password
+	 * 			The password used to store the stego
+	 * @throws IOException
+	 * 			Throws if the host image cannot be read or is not an image
+	 */
+	public ProbeWorker(String hostImagePath, String password) throws IOException, IIOException {
+		this.hostImagePath = hostImagePath;
+		this.password = password;
+		Dimension size = HostRaster.readSize(new File(hostImagePath));
+		memoryEstimate = HostRaster.estimateMemoryUsage(size.width, size.height) + 4L * PREVIEW_SIZE * PREVIEW_SIZE;
+	}
+
+	public String doInBackground() throws IOException, IIOException, ImageOverflowException {
+		HostRaster raster = HostRaster.read(new File(hostImagePath));
+		try {
+			preview = createPreview(raster);
+			return Steganographer.getInfo(Steganographer.probe(raster, password));
+		} finally {
+			raster.close();
+		}
+	}
+
+	/**
+	 * Returns the image to show for the host image
+	 *
+	 * @return The host image, or every few pixels of it if it is too big for the heap, or null if the probe is not done
+	 */
+	public BufferedImage getPreview() {
+		return preview;
+	}
+
+	/**
+	 * Returns the most bytes the worker is expected to use at once, for the job scheduler
+	 *
+	 * @return The memory estimate in bytes
+	 */
+	public long getMemoryEstimate() {
+		return memoryEstimate;
+	}
+
+	private static BufferedImage createPreview(HostRaster raster) {
+		if (raster.getImage() != null) {
+			return raster.getImage(); // Already on the heap
+		}
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		int step = (Math.max(width, height) + PREVIEW_SIZE - 1) / PREVIEW_SIZE;
+		BufferedImage image = new BufferedImage(Math.max(1, width / step), Math.max(1, height / step), BufferedImage.TYPE_INT_RGB);
+		int[] rgbRow = new int[width];
+		for (int y = 0; y < image.getHeight(); y++) {
+			raster.getRow(y * step, rgbRow);
+			for (int x = 0; x < image.getWidth(); x++) {
+				image.setRGB(x, y, rgbRow[x * step]);
+			}
+		}
+		return image;
+	}
+
+	public void done() {
+
+	}
+}
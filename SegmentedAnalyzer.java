@@ -1,21 +1,34 @@
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Stack;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import javax.imageio.IIOException;
-import javax.imageio.ImageIO;
 
 // By: Justin Spedding & Andrew Miller
 
 public class SegmentedAnalyzer extends SegmentedSteganographer {
 
-	private BufferedImage hostImage;
+	private static final int MIN_TILE_ROWS = 64; // Planes are not split into tiles shorter than this
+	private static final int FIRST_SLICE_ROWS = 16; // The number of rows in the first segment, before any have been timed
+
+	private HostRaster hostRaster; // The pixels of the host image, until the planes are extracted
+	private BitPlanes bitPlanes; // Every plane of the host image, extracted by the first segment
 	private int[][] values;
+	private ForkJoinPool pool; // Analyzes the tiles of the planes of a segment at the same time, or null to use the calling thread
+	private int planesPerSegment; // The number of planes analyzed in each segment
+	private int nextPlane; // The next plane to analyze
+	private int nextRow; // The next row to extract, or to count within each tile of the planes being analyzed
+	private int tilesPerPlane; // The number of tiles each plane is split into
+	private TiledChunkCounter[] chunkCounters; // Counts the chunks of one plane, one per plane analyzed at a time
+	private long peakMemoryUsage; // The most bytes of image data and working memory held at once
 
 	/**
-	 * Constructs an analyzer object that breaks the work up into multiple segments.
+	 * Constructs an analyzer object that breaks the work up into segments that each take about getSliceTime().
 	 *
 	 * @param hostImagePath
 	 * 			The path to the host image
@@ -25,9 +38,92 @@ public class SegmentedAnalyzer extends SegmentedSteganographer {
 	 * 			Throws if there is an IO error
 	 */
 	public SegmentedAnalyzer(String hostImagePath) throws FileNotFoundException, IOException, IIOException {
-		segments = 21;
-		hostImage = ImageIO.read(new File(hostImagePath));
+		this(hostImagePath, null, 0);
+	}
+
+	/**
+	 * Constructs an analyzer object that analyzes several tiles of rows at the same time in each segment.
+	 * The first segments extract every plane in one pass over the pixels, the rest count the chunks in the planes.
+	 * As many tiles are counted at once as the pool has threads for and the memory budget allows, but always at least one.
+	 * Tall images are split into tiles so a single plane is counted on every thread, short images are analyzed several
+	 * whole planes at a time instead. Each segment extracts or counts as many rows as take about getSliceTime().
+	 *
+	 * @param hostImagePath
+	 * 			The path to the host image
+	 * @param pool
+	 * 			The threads to analyze with, or null to analyze one plane per segment on the calling thread
+	 * @param memoryBudget
+	 * 			The most bytes of working memory to use for tiles being counted at the same time
+	 * @throws FileNotFoundException
+	 * 			Throws if the file path is invalid
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 */
+	public SegmentedAnalyzer(String hostImagePath, ForkJoinPool pool, long memoryBudget) throws FileNotFoundException, IOException, IIOException {
+		hostRaster = HostRaster.read(new File(hostImagePath)); // Images too big for the heap are read a tile at a time
 		values = new int[3][7];
+		this.pool = pool;
+		int width = hostRaster.getWidth();
+		int tasks = getTasks(width, pool, memoryBudget);
+		tilesPerPlane = getTilesPerPlane(tasks, hostRaster.getHeight());
+		planesPerSegment = getPlanesPerSegment(tasks, tilesPerPlane);
+		totalWork = 2L * BitPlanes.PLANES * hostRaster.getHeight(); // Every row of every plane is extracted, then counted
+		sliceSize = FIRST_SLICE_ROWS;
+		peakMemoryUsage = getPeakMemoryUsage(width, hostRaster.getHeight(), hostRaster.getMemoryUsage(), tilesPerPlane, planesPerSegment);
+	}
+
+	/**
+	 * Estimates the most bytes an analyzer would hold at once, before the host image is loaded
+	 *
+	 * @param width
+	 * 			The width of the host image
+	 * @param height
+	 * 			The height of the host image
+	 * @param pool
+	 * 			The threads the analyzer would use, or null for the calling thread
+	 * @param memoryBudget
+	 * 			The most bytes of working memory the analyzer would use for tiles being counted at the same time
+	 * @return The estimated peak memory in bytes
+	 */
+	public static long estimatePeakMemoryUsage(int width, int height, ForkJoinPool pool, long memoryBudget) {
+		int tasks = getTasks(width, pool, memoryBudget);
+		int tilesPerPlane = getTilesPerPlane(tasks, height);
+		return getPeakMemoryUsage(width, height, HostRaster.estimateMemoryUsage(width, height), tilesPerPlane, getPlanesPerSegment(tasks, tilesPerPlane));
+	}
+
+	private static int getTasks(int width, ForkJoinPool pool, long memoryBudget) { // The number of tiles to count at the same time
+		if (pool == null) {
+			return 1;
+		}
+		return (int) Math.max(1, Math.min(pool.getParallelism(), memoryBudget / TiledChunkCounter.getMemoryUsage(width, 1)));
+	}
+
+	/**
+	 * Releases the host image, for analyzers that are stopped before every plane is extracted
+	 *
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 */
+	public void close() throws IOException {
+		if (hostRaster != null) {
+			hostRaster.close();
+			hostRaster = null;
+		}
+	}
+
+	private static int getTilesPerPlane(int tasks, int height) {
+		return Math.max(1, Math.min(tasks, height / MIN_TILE_ROWS));
+	}
+
+	private static int getPlanesPerSegment(int tasks, int tilesPerPlane) {
+		return Math.max(1, Math.min(BitPlanes.PLANES, tasks / tilesPerPlane));
+	}
+
+	private static long getPeakMemoryUsage(int width, int height, long rasterMemory, int tilesPerPlane, int planesPerSegment) {
+		long planeMemory = BitPlanes.getMemoryUsage(width, height);
+		long scanMemory = rasterMemory + planeMemory + 4L * width; // The host image, the planes and a row of colors
+		long countMemory = planeMemory + TiledChunkCounter.getMemoryUsage(width, tilesPerPlane) * planesPerSegment; // The planes and the counters
+		return Math.max(scanMemory, countMemory);
 	}
 
 	/**
@@ -40,62 +136,92 @@ public class SegmentedAnalyzer extends SegmentedSteganographer {
 	 */
 	public void nextSegment() throws IOException, IIOException, NoSuchSegmentException {
 		if (hasNext()) {
-			int bit = currentSegment / 3;
-			int color = currentSegment % 3;
-			int chunkCount = 0;
-			boolean[][] checked = new boolean[hostImage.getWidth()][hostImage.getHeight()];
-			int[][] map = new int[hostImage.getWidth()][hostImage.getHeight()];
-			for (int i = 0; i < hostImage.getWidth(); i++) {
-				for (int j = 0; j < hostImage.getHeight(); j++) {
-					checked[i][j] = false;
-					map[i][j] = (hostImage.getRGB(i, j) >> ((color * 8) + bit)) & 1;
+			long start = System.nanoTime();
+			if (hostRaster != null) {
+				if (bitPlanes == null) {
+					bitPlanes = new BitPlanes(hostRaster.getWidth(), hostRaster.getHeight());
 				}
-			}
-			for (int i = 0; i < hostImage.getWidth(); i++) {
-				for (int j = 0; j < hostImage.getHeight(); j++) {
-					if (!checked[i][j]) {
-						chunkCount++;
-						removeChunk(i, j, color, bit, map[i][j], checked, map);
+				int rows = (int) Math.min(sliceSize, hostRaster.getHeight() - nextRow);
+				try {
+					bitPlanes.extractRows(hostRaster, nextRow, nextRow + rows); // Fetch every pixel once for all of the planes
+				} catch (UncheckedIOException e) { // A tile of the host image could not be read
+					throw e.getCause();
+				}
+				nextRow += rows;
+				completedWork += (long) BitPlanes.PLANES * rows;
+				tuneSlice(rows, System.nanoTime() - start);
+				if (nextRow == hostRaster.getHeight()) {
+					hostRaster.close();
+					hostRaster = null; // Only the planes are needed from here on
+					chunkCounters = new TiledChunkCounter[planesPerSegment]; // Allocated only once the host image can be collected
+					for (int i = 0; i < planesPerSegment; i++) {
+						chunkCounters[i] = new TiledChunkCounter(bitPlanes.getWidth(), tilesPerPlane);
 					}
+					nextRow = 0;
+					sliceSize = FIRST_SLICE_ROWS; // Counting a row takes a different time than extracting one
+				}
+			} else {
+				int planes = Math.min(planesPerSegment, BitPlanes.PLANES - nextPlane);
+				int tiles = chunkCounters[0].getTileCount();
+				int tileHeight = chunkCounters[0].getMaxTileHeight(bitPlanes.getHeight());
+				int rows = (int) Math.min(sliceSize, tileHeight - nextRow);
+				if (pool == null) {
+					completedWork += countRows(nextPlane, 0, 0, nextRow, rows);
+				} else {
+					List<ForkJoinTask<Integer>> tasks = new ArrayList<ForkJoinTask<Integer>>(planes * tiles);
+					for (int i = 0; i < planes * tiles; i++) {
+						final int plane = nextPlane + i / tiles;
+						final int slot = i / tiles;
+						final int tile = i % tiles;
+						final int row = nextRow;
+						tasks.add(pool.submit(() -> countRows(plane, slot, tile, row, rows))); // Each tile has its own counter
+					}
+					for (ForkJoinTask<Integer> task : tasks) {
+						completedWork += task.join(); // Also makes the counts of the task visible here
+					}
+				}
+				nextRow += rows;
+				tuneSlice(rows, System.nanoTime() - start);
+				if (nextRow == tileHeight) {
+					for (int i = 0; i < planes; i++) { // Merge the tiles of each plane
+						int plane = nextPlane + i;
+						values[plane % 3][plane / 3] = chunkCounters[i].getChunkCount();
+					}
+					nextPlane += planes;
+					nextRow = 0;
 				}
 			}
-			values[color][bit] = chunkCount;
 			currentSegment++;
 		} else {
 			throw new NoSuchSegmentException();
 		}
 	}
 
-	private int removeChunk(int i, int j, int color, int bit, int base, boolean[][] checked, int[][] map) {
-		int chunkSize = 0;
-		Stack<Integer> stack = new Stack<Integer>();
-		stack.push(i);
-		stack.push(j);
-		while (!stack.isEmpty()) {
-			j = stack.pop();
-			i = stack.pop();
-			if (map[i][j] == base && !checked[i][j]) {
-				chunkSize++;
-				checked[i][j] = true;
-				if (i > 0 && !checked[i - 1][j]) {
-					stack.push(i - 1);
-					stack.push(j);
-				}
-				if (i < hostImage.getWidth() - 1 && !checked[i + 1][j]) {
-					stack.push(i + 1);
-					stack.push(j);
-				}
-				if (j > 0 && !checked[i][j - 1]) {
-					stack.push(i);
-					stack.push(j - 1);
-				}
-				if (j < hostImage.getHeight() - 1 && !checked[i][j + 1]) {
-					stack.push(i);
-					stack.push(j + 1);
-				}
-			}
-		}
-		return chunkSize;
+	private int countRows(int plane, int slot, int tile, int start, int rows) {
+		return chunkCounters[slot].countRows(tile, bitPlanes.getPlane(plane), bitPlanes.getWordsPerRow(), bitPlanes.getHeight(), start, rows);
+	}
+
+	/**
+	 * Returns the most bytes of image data and working memory the analysis holds at once
+	 * Known before any segment runs, so it can be used to size the heap of workers.
+	 *
+	 * @return The peak memory used by the analysis in bytes
+	 */
+	public long getPeakMemoryUsage() {
+		return peakMemoryUsage;
+	}
+
+	/**
+	 * Returns the number of chunks of matching bits counted in one plane of the host image
+	 *
+	 * @param color
+	 * 			The color, 0 for blue, 1 for green or 2 for red
+	 * @param bit
+	 * 			The bit of the color, from 0 to 6
+	 * @return The number of chunks, or 0 if the plane has not been counted yet
+	 */
+	public int getChunkCount(int color, int bit) {
+		return values[color][bit];
 	}
 
 	/**
@@ -1,20 +1,30 @@
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
 import javax.imageio.IIOException;
-import javax.imageio.ImageIO;
 
 //By: Justin Spedding & Andrew Miller
 
 public class SegmentedDecoder extends SegmentedSteganographer {
 
 	private ImageReader imageReader; // The host image manipulator
+	private ParallelDecoder parallelDecoder; // Reads each segment on several threads
+	private long fileSize; // The number of bytes in the stego
 	protected RandomAccessFile stego; // The stego to decode
-	protected int[] segmentSizes; // The number of bytes to encode in each segment
+	private long remainingBytes; // The number of stego bytes left to decode
+	private ByteBuffer ioBuffer; // Holds the part of the stego being decoded
+	private InputStream payload; // Decompresses the stego on its way out of the image, or null if it is stored as is
 
 	/**
-	 * Constructs a decoder object that breaks the work up into multiple segments.
+	 * Constructs a decoder object that breaks the work up into segments that each take about getSliceTime().
 	 *
 	 * @param hostImagePath
 	 * 			The path to the host image
@@ -22,40 +32,105 @@ public class SegmentedDecoder extends SegmentedSteganographer {
 	 * 			The directory to save the hidden file
 	 * @param password
 	 * 			The password used to store the stego
-	 * @param segments
-	 * 			The number of segments to break the work up into
 	 * @throws FileNotFoundException
 	 * 			Throws if the filePath is invalid
 	 * @throws IOException
 	 * 			Throws if there is an IO error
-	 * @throws CannotEncodeException
-	 * 			Throws if the file cannot fit in the host image
+	 * @throws CannotDecodeException
+	 * 			Throws if the host image does not contain a valid stego
 	 * @throws ImageOverflowException
 	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
 	 */
 	public SegmentedDecoder(String hostImagePath, String outputDir, String password) throws FileNotFoundException, IOException, IIOException, CannotDecodeException, ImageOverflowException {
-		segments = 100;
-		imageReader = new ImageReader(ImageIO.read(new File(hostImagePath)), password); // Initialize the host image manipulator
-		if (Steganographer.canDecode(imageReader.getHostImage(), password)) { // If the image contains an encoded file
-			ImageRW.readString(imageReader, Steganographer.getMarker().length()); // Skip the marker
-			int fileLength = ImageRW.readInt(imageReader); // Get the file length
-			String fileName = ImageRW.readString(imageReader, ImageRW.readInt(imageReader)); // Get the file name
-			stego = new RandomAccessFile(new File(outputDir + File.separator + fileName), "rw"); // Create the file to be created
+		this(probe(hostImagePath, password), outputDir);
+	}
+
+	private static StegoHeader probe(String hostImagePath, String password) throws IOException, IIOException, ImageOverflowException {
+		HostRaster raster = HostRaster.read(new File(hostImagePath));
+		StegoHeader header = Steganographer.probe(raster, password);
+		if (header == null) {
+			raster.close(); // Nothing to decode, so the host image is done with
+		}
+		return header;
+	}
+
+	/**
+	 * Constructs a decoder object from a header that has already been parsed.
+	 *
+	 * @param header
+	 * 			The parsed header of the stego to decode
+	 * @param outputDir
+	 * 			The directory to save the hidden file
+	 * @throws FileNotFoundException
+	 * 			Throws if the output file cannot be created
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 * @throws CannotDecodeException
+	 * 			Throws if the header is null because the host image does not contain a valid stego
+	 */
+	public SegmentedDecoder(StegoHeader header, String outputDir) throws FileNotFoundException, IOException, CannotDecodeException {
+		parallelDecoder = new ParallelDecoder(ForkJoinPool.commonPool());
+		if (header != null) { // If the image contains an encoded file
+			imageReader = header.getImageReader(); // Continue from the end of the header
+			stego = new RandomAccessFile(new File(outputDir + File.separator + header.getFileName()), "rw"); // Create the file to be created
 			stego.setLength(0);
-			segmentSizes = new int[segments];
-			int remainingBytes = fileLength; // Get the total number of bytes to encode
-			int segmentLength = (int) (((double) remainingBytes) / ((double) segments)); // Get the length of each segment
-			for (int i = 0; i < segments - 1; i++) { // Set the byte lengths of all but the last segment
-				segmentSizes[i] = segmentLength;
-				remainingBytes -= segmentLength;
+			fileSize = header.getFileSize();
+			remainingBytes = fileSize; // Get the total number of bytes to decode
+			totalWork = remainingBytes + 1; // One byte of work each, and one more to finish the stego so even an empty one takes a segment
+			sliceSize = FIRST_SLICE_BYTES; // Grows once the first segments are timed
+			int bufferSize = (int) Math.max(1, Math.min(IO_BUFFER_SIZE, remainingBytes)); // No segment is bigger than the buffer
+			if (header.getCodec() == Codec.NONE) {
+				ioBuffer = ByteBuffer.allocateDirect(bufferSize);
+			} else {
+				ioBuffer = ByteBuffer.allocate(bufferSize); // The decompressor needs an array to write to
+				payload = header.getCodec().decompress(new BufferedInputStream(new StegoInputStream(imageReader, parallelDecoder), STREAM_BUFFER_SIZE));
 			}
-			segmentSizes[segmentSizes.length - 1] = remainingBytes; // Put the remaining bytes in the last segment
-			currentSegment = 0; // Start with the first segment
 		} else {
 			throw new CannotDecodeException();
 		}
 	}
 
+	/**
+	 * Returns the size of the stego once it is decoded
+	 *
+	 * @return The number of bytes in the stego
+	 */
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	/**
+	 * Returns the number of stego bytes that have been decoded so far, across all threads
+	 *
+	 * @return The number of stego bytes decoded so far
+	 */
+	public long getDecodedBytes() {
+		return parallelDecoder.getBytesRead();
+	}
+
+	public long getPeakMemoryUsage() {
+		HostRaster raster = imageReader.getRaster();
+		return raster.getMemoryUsage() + imageReader.getLayout().getMemoryUsage(raster.getPixelCount()) + ioBuffer.capacity() + (payload == null ? 0 : STREAM_BUFFER_SIZE); // The host image, its pixel order, a block of the stego and the compressed bytes on their way out
+	}
+
+	/**
+	 * Estimates the most bytes a decoder would hold at once, before the host image is loaded
+	 * The header has not been read yet, so the stego is assumed to be stored with the layout and codec that use the most,
+	 * and to be as big as the image can hold.
+	 *
+	 * @param width
+	 * 			The width of the host image
+	 * @param height
+	 * 			The height of the host image
+	 * @return The estimated peak memory in bytes
+	 */
+	public static long estimatePeakMemoryUsage(int width, int height) {
+		long pixelCount = (long) width * height;
+		long orderMemory = pixelCount <= Layout.SHUFFLED.getMaxPixelCount() ? Layout.SHUFFLED.getMemoryUsage(pixelCount) : 0;
+		long ioMemory = Math.max(1, Math.min(IO_BUFFER_SIZE, Steganographer.getCapacity(pixelCount, 8)));
+		return HostRaster.estimateMemoryUsage(width, height) + orderMemory + ioMemory + STREAM_BUFFER_SIZE;
+	}
+
 	/**
 	 * Processes the next decoding segment
 	 *
@@ -68,13 +143,68 @@ public class SegmentedDecoder extends SegmentedSteganographer {
 	 */
 	public void nextSegment() throws IOException, IIOException, ImageOverflowException, NoSuchSegmentException {
 		if (hasNext()) {
-			int remainingBytes = segmentSizes[currentSegment];
-			for (; remainingBytes != 0; remainingBytes--) {
-				stego.write(ImageRW.readByte(imageReader));
+			long start = System.nanoTime();
+			int bytes = (int) Math.min(sliceSize, Math.min(remainingBytes, ioBuffer.capacity())); // Decode as much of the stego as should take one time slice, then save it
+			if (bytes != 0) {
+				FileChannel channel = stego.getChannel();
+				ioBuffer.clear();
+				ioBuffer.limit(bytes);
+				try {
+					if (payload == null) {
+						parallelDecoder.readBytes(imageReader, ioBuffer);
+					} else {
+						readPayload();
+					}
+				} catch (UncheckedIOException e) { // A tile of the host image could not be read
+					throw e.getCause();
+				}
+				ioBuffer.flip();
+				while (ioBuffer.hasRemaining()) {
+					channel.write(ioBuffer);
+				}
+				remainingBytes -= bytes;
+				completedWork += bytes;
+			}
+			if (remainingBytes == 0) {
+				if (payload != null) {
+					payload.close();
+				}
+				stego.close(); // Done with the stego
+				imageReader.getRaster().close(); // Done with the host image
+				completedWork++;
 			}
 			currentSegment++;
+			tuneSlice(bytes, System.nanoTime() - start);
 		} else {
 			throw new NoSuchSegmentException();
 		}
 	}
+
+	/**
+	 * Releases the stego and the host image, for decoders that are stopped before they finish
+	 *
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 */
+	public void close() throws IOException {
+		stego.close();
+		imageReader.getRaster().close();
+	}
+
+	private void readPayload() throws IOException, ImageOverflowException {
+		try {
+			while (ioBuffer.hasRemaining()) {
+				int n = payload.read(ioBuffer.array(), ioBuffer.arrayOffset() + ioBuffer.position(), ioBuffer.remaining());
+				if (n < 0) { // The compressed stego ended before the size in the header
+					throw new EOFException();
+				}
+				ioBuffer.position(ioBuffer.position() + n);
+			}
+		} catch (IOException e) {
+			if (e.getCause() instanceof ImageOverflowException) {
+				throw (ImageOverflowException) e.getCause();
+			}
+			throw e;
+		}
+	}
 }
\ No newline at end of file
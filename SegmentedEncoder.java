@@ -1,21 +1,30 @@
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
 import javax.imageio.IIOException;
-import javax.imageio.ImageIO;
 
 // By: Justin Spedding & Andrew Miller
 
 public class SegmentedEncoder extends SegmentedSteganographer {
 
 	private ImageWriter imageWriter; // The host image manipulator
+	private ParallelEncoder parallelEncoder; // Writes each segment on several threads
 	protected RandomAccessFile stego; // The stego to encode
-	protected int[] segmentSizes; // The number of bytes to encode in each segment
+	private long remainingBytes; // The number of stego bytes left to encode
+	private ByteBuffer ioBuffer; // Holds the part of the stego being encoded
+	private OutputStream payload; // Compresses the stego on its way into the image, or null if it is stored as is
 
 	/**
-	 * Constructs an encoder object that breaks the work up into multiple segments.
+	 * Constructs an encoder object that breaks the work up into segments that each take about getSliceTime().
 	 *
 	 * @param hostImagePath
 	 * 			The path to the host image
@@ -23,8 +32,6 @@ public class SegmentedEncoder extends SegmentedSteganographer {
 	 * 			The path to the stego
 	 * @param password
 	 * 			The password used to store the stego
-	 * @param segments
-	 * 			The number of segments to break the work up into
 	 * @throws FileNotFoundException
 	 * 			Throws if the file path is invalid
 	 * @throws IOException
@@ -35,59 +42,177 @@ public class SegmentedEncoder extends SegmentedSteganographer {
 	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
 	 */
 	public SegmentedEncoder(String hostImagePath, String stegoPath, String password) throws FileNotFoundException, IOException, IIOException, CannotEncodeException, ImageOverflowException {
-		segments = 100;
-		imageWriter = new ImageWriter(ImageIO.read(new File(hostImagePath)), password); // Initialize the host image manipulator
+		parallelEncoder = new ParallelEncoder(ForkJoinPool.commonPool());
 		File stegoFile = new File(stegoPath);
-		stego = new RandomAccessFile(stegoFile, "r"); // Initialize the file to be encoded
+		stego = new RandomAccessFile(stegoFile, "r"); // Opened before the host image, so a missing stego leaves nothing loaded
+		HostRaster raster = null;
+		try {
+			raster = HostRaster.read(new File(hostImagePath)); // Images too big for the heap are loaded outside it
+			if (raster.getPixelCount() > Steganographer.getLayout().getMaxPixelCount()) {
+				throw new CannotEncodeException();
+			}
+			imageWriter = new ImageWriter(raster, password, Steganographer.getLayout(), Steganographer.getDepth()); // Initialize the host image manipulator
+		} catch (IOException | CannotEncodeException | RuntimeException e) { // Also covers a pixel order too big to generate
+			if (raster != null) {
+				raster.close();
+			}
+			stego.close();
+			throw e;
+		}
 		String fileName = stegoFile.getName(); // Get the name of the file
-		if (Steganographer.canEncode(imageWriter.getHostImage(), stego, fileName.length())) { // If the file will fit in the image
-			segmentSizes = new int[segments];
-			int remainingBytes = (int) stego.length(); // Get the total number of bytes to encode
-			int segmentLength = (int) (((double) remainingBytes) / ((double) segments)); // Get the length of each segment
-			for (int i = 0; i < segments - 1; i++) { // Set the byte lengths of all but the last segment
-				segmentSizes[i] = segmentLength;
-				remainingBytes -= segmentLength;
+		Codec codec = Steganographer.getCodec();
+		if (Steganographer.canEncode(raster, stego, fileName.length()) || (codec != Codec.NONE && StegoHeader.getCapacity(raster.getPixelCount(), Steganographer.getLayout(), Steganographer.getDepth(), fileName.length()) >= 0)) { // If the file will fit in the image, or might once it is compressed
+			remainingBytes = stego.length(); // Get the total number of bytes to encode
+			totalWork = remainingBytes + 1; // One byte of work each, and one more to finish the stego so even an empty one takes a segment
+			sliceSize = FIRST_SLICE_BYTES; // Grows once the first segments are timed
+			int bufferSize = (int) Math.max(1, Math.min(IO_BUFFER_SIZE, remainingBytes)); // No segment is bigger than the buffer
+			StegoHeader.write(imageWriter, password, codec, stego.length(), fileName); // Write the header in front of the file
+			if (codec == Codec.NONE) {
+				ioBuffer = ByteBuffer.allocateDirect(bufferSize);
+			} else {
+				ioBuffer = ByteBuffer.allocate(bufferSize); // The compressor needs an array to read from
+				payload = codec.compress(new BufferedOutputStream(new StegoOutputStream(imageWriter, parallelEncoder), STREAM_BUFFER_SIZE), Steganographer.getCompressionLevel());
 			}
-			segmentSizes[segmentSizes.length - 1] = remainingBytes; // Put the remaining bytes in the last segment
-			currentSegment = 0; // Start with the first segment
-			ImageRW.writeString(imageWriter, Steganographer.getMarker()); // Mark the image as having a hidden file
-			ImageRW.writeInt(imageWriter, (int) stego.length()); // Write the size of the file
-			ImageRW.writeInt(imageWriter, fileName.length()); // Write the length of the file name
-			ImageRW.writeString(imageWriter, fileName); // Write the file's name
 		} else {
+			close(); // Nothing will be encoded
 			throw new CannotEncodeException();
 		}
 	}
 
 	/**
 	 * Processes the next encoding segment
+	 * A compressed stego that may not fit is only found to be too big once it runs out of pixels, which fails the
+	 * segment it happens in instead of compressing the whole stego an extra time up front.
 	 *
 	 * @throws IOException
 	 * 			Throws if there is an IO error
+	 * @throws CannotEncodeException
+	 * 			Throws if the compressed stego turns out not to fit in the host image
 	 * @throws ImageOverflowException
 	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
 	 * @throws NoSuchSegmentException
 	 * 			Throws if there are no segments left to process
 	 */
-	public void nextSegment() throws IOException, IIOException, ImageOverflowException, NoSuchSegmentException {
+	public void nextSegment() throws IOException, IIOException, CannotEncodeException, ImageOverflowException, NoSuchSegmentException {
 		if (hasNext()) {
-			int remainingBytes = segmentSizes[currentSegment];
-			for (; remainingBytes != 0; remainingBytes--) {
-				ImageRW.writeByte(imageWriter, (byte) stego.read());
+			long start = System.nanoTime();
+			int bytes = (int) Math.min(sliceSize, Math.min(remainingBytes, ioBuffer.capacity())); // Read as much of the stego as should take one time slice to encode
+			if (bytes != 0) {
+				FileChannel channel = stego.getChannel();
+				ioBuffer.clear();
+				ioBuffer.limit(bytes);
+				while (ioBuffer.hasRemaining()) {
+					if (channel.read(ioBuffer) < 0) {
+						throw new EOFException();
+					}
+				}
+				ioBuffer.flip();
+				try {
+					if (payload == null) {
+						parallelEncoder.writeBytes(imageWriter, ioBuffer);
+					} else {
+						writePayload(ioBuffer.array(), ioBuffer.arrayOffset(), ioBuffer.remaining(), false);
+					}
+				} catch (UncheckedIOException e) { // A tile of the host image could not be read or saved
+					throw e.getCause();
+				}
+				remainingBytes -= bytes;
+				completedWork += bytes;
+			}
+			if (remainingBytes == 0) {
+				if (payload != null) {
+					writePayload(null, 0, 0, true); // Write the end of the compressed stego
+				}
+				stego.close(); // Done with the stego
+				completedWork++;
 			}
 			currentSegment++;
+			tuneSlice(bytes, System.nanoTime() - start);
 		} else {
 			throw new NoSuchSegmentException();
 		}
 	}
 
+	private void writePayload(byte[] b, int off, int len, boolean finish) throws IOException, CannotEncodeException {
+		try {
+			if (finish) {
+				payload.close();
+			} else {
+				payload.write(b, off, len);
+			}
+		} catch (IOException e) {
+			if (e.getCause() instanceof ImageOverflowException) { // The compressed stego did not fit after all
+				throw new CannotEncodeException();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of stego bytes that have been encoded so far, across all threads
+	 *
+	 * @return The number of stego bytes encoded so far
+	 */
+	public long getEncodedBytes() {
+		return parallelEncoder.getBytesWritten();
+	}
+
+	public long getPeakMemoryUsage() {
+		HostRaster raster = imageWriter.getRaster();
+		return raster.getMemoryUsage() + imageWriter.getLayout().getMemoryUsage(raster.getPixelCount()) + ioBuffer.capacity() + (payload == null ? 0 : STREAM_BUFFER_SIZE); // The host image, its pixel order, a block of the stego and the compressed bytes on their way in
+	}
+
+	/**
+	 * Estimates the most bytes an encoder would hold at once, before the host image is loaded
+	 *
+	 * @param width
+	 * 			The width of the host image
+	 * @param height
+	 * 			The height of the host image
+	 * @param stegoSize
+	 * 			The number of bytes in the stego
+	 * @param layout
+	 * 			The layout the stego would be stored with
+	 * @param codec
+	 * 			The codec the stego would be stored with
+	 * @return The estimated peak memory in bytes
+	 */
+	public static long estimatePeakMemoryUsage(int width, int height, long stegoSize, Layout layout, Codec codec) {
+		long ioMemory = Math.max(1, Math.min(IO_BUFFER_SIZE, stegoSize));
+		if (codec != Codec.NONE) {
+			ioMemory += STREAM_BUFFER_SIZE;
+		}
+		return HostRaster.estimateMemoryUsage(width, height) + layout.getMemoryUsage((long) width * height) + ioMemory;
+	}
+
 	/**
 	 * Returns the encoded image
 	 * If not all of the segments have been completed, this will return an incomplete image.
 	 *
-	 * @return The encoded image, whether it is finished or not
+	 * @return The encoded image, whether it is finished or not, or null if it is too big to be held by a BufferedImage
 	 */
 	public BufferedImage getEncodedImage() {
 		return imageWriter.getHostImage();
 	}
+
+	/**
+	 * Releases the stego and the host image, after which the encoded image can no longer be used
+	 *
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 */
+	public void close() throws IOException {
+		stego.close();
+		imageWriter.getRaster().close();
+	}
+
+	/**
+	 * Returns the pixels of the encoded image, which can be written out however big the image is
+	 * If not all of the segments have been completed, this will return an incomplete image.
+	 *
+	 * @return The raster of the encoded image
+	 */
+	public HostRaster getEncodedRaster() {
+		return imageWriter.getRaster();
+	}
 }
\ No newline at end of file
@@ -2,8 +2,16 @@
 
 public abstract class SegmentedSteganographer {
 
-	protected int segments;
-	protected int currentSegment; // The next segment to encode
+	protected static final int IO_BUFFER_SIZE = 1 << 22; // The most stego bytes to hold in memory at once
+	protected static final int STREAM_BUFFER_SIZE = 1 << 18; // The number of compressed bytes written to or read from the image at a time
+	protected static final int FIRST_SLICE_BYTES = 1 << 16; // The number of stego bytes in the first segment, before any have been timed
+
+	private static long sliceTime = 50_000_000L; // How long each segment should take in nanoseconds
+
+	protected int currentSegment; // The number of segments processed so far
+	protected long totalWork; // The number of units of work the whole job takes
+	protected long completedWork; // The number of units of work done so far
+	protected long sliceSize; // The number of units of work the next segment should do, tuned as segments are timed
 
 	/**
 	 * Are there any unprocessed segments left?
@@ -11,7 +19,7 @@ public abstract class SegmentedSteganographer {
 	 * @return True if at least one segment remains, false otherwise
 	 */
 	public boolean hasNext() {
-		return currentSegment < segments;
+		return completedWork < totalWork;
 	}
 
 	/**
@@ -24,11 +32,72 @@ public abstract class SegmentedSteganographer {
 	}
 
 	/**
-	 * How many total segments are there?
+	 * How much of the job is done?
+	 * Segments are sized by time rather than counted up front, so progress is measured in units of work instead.
+	 *
+	 * @return The percentage of the work done, which only reaches 100 once no segments are left
+	 */
+	public int getProgress() {
+		return hasNext() ? (int) (completedWork * 100 / totalWork) : 100;
+	}
+
+	/**
+	 * Returns the number of units of work the whole job takes
+	 *
+	 * @return The total work
+	 */
+	public long getTotalWork() {
+		return totalWork;
+	}
+
+	/**
+	 * Returns the number of units of work done so far
+	 *
+	 * @return The completed work
+	 */
+	public long getCompletedWork() {
+		return completedWork;
+	}
+
+	/**
+	 * Returns the most bytes of image data and working memory the operation holds at once
+	 *
+	 * @return The peak memory used in bytes
+	 */
+	public abstract long getPeakMemoryUsage();
+
+	/**
+	 * Returns how long each segment should take
+	 *
+	 * @return The time in nanoseconds
+	 */
+	public static long getSliceTime() {
+		return sliceTime;
+	}
+
+	/**
+	 * Sets how long each segment should take
+	 * Shorter segments make cancelling and progress more responsive, longer ones cost less overhead.
+	 *
+	 * @param sliceTime
+	 * 			The time in nanoseconds
+	 */
+	public static void setSliceTime(long sliceTime) {
+		SegmentedSteganographer.sliceTime = sliceTime;
+	}
+
+	/**
+	 * Resizes the next segment from how long the last one took, so each one takes about getSliceTime()
+	 * Segments grow at most fourfold at a time, so one that finished unusually fast cannot make the next one huge.
 	 *
-	 * @return The total number of segments
+	 * @param size
+	 * 			The number of units of work the last segment did
+	 * @param nanos
+	 * 			How long the last segment took in nanoseconds
 	 */
-	public int getTotalSegments() {
-		return segments;
+	protected void tuneSlice(long size, long nanos) {
+		if (size >= sliceSize || nanos > sliceTime) { // A segment cut short by the end of the work says nothing about speed, unless it was still too slow
+			sliceSize = Math.max(1, (long) (size * Math.min(4.0, (double) sliceTime / Math.max(1, nanos))));
+		}
 	}
 }
@@ -0,0 +1,161 @@
+import java.util.BitSet;
+import java.util.Random;
+
+// By: Justin Spedding & Andrew Miller
+
+public class ShuffledPixelOrder extends PixelOrder {
+
+	public static final int MAX_PIXELS = Integer.MAX_VALUE - 8; // The largest array the JVM can allocate
+	private static final long MULTIPLIER = 0x5DEECE66DL; // The generator java.util.Random uses, which v0.7 shuffled with
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+	private static final int BLOCK_SIZE = 1 << 16; // The number of swaps drawn again at a time while undoing the shuffle
+
+	private int[] pixelArray; // The order in which to access pixels
+
+	private static class Prefix extends PixelOrder { // The first pixels of the order, found without the array
+
+		private long[] pixels; // The first pixels of the order
+		private long pixelCount; // The number of pixels in the host image
+
+		public long getPixel(long index) {
+			return pixels[(int) index];
+		}
+
+		public long getPixelCount() {
+			return pixelCount;
+		}
+
+		public long getMemoryUsage() {
+			return 8L * pixels.length;
+		}
+	}
+
+	private static class Draws { // Draws the same numbers as java.util.Random, but its seed can be saved and restored
+
+		private long seed; // The state of the generator
+
+		private Draws(long seed) {
+			this.seed = (seed ^ MULTIPLIER) & MASK;
+		}
+
+		private int next31() {
+			seed = (seed * MULTIPLIER + ADDEND) & MASK;
+			return (int) (seed >>> (48 - 31));
+		}
+
+		private int nextInt(int bound) {
+			int r = next31();
+			int m = bound - 1;
+			if ((bound & m) == 0) { // A power of 2
+				return (int) ((bound * (long) r) >> 31);
+			}
+			for (int u = r; u - (r = u % bound) + m < 0; u = next31()); // Draw again rather than favor low numbers
+			return r;
+		}
+	}
+
+	/**
+	 * Constructs the v0.7 pixel order by shuffling an array of every pixel index
+	 *
+	 * @param pixelCount
+	 * 			The number of pixels in the host image, at most MAX_PIXELS
+	 * @param password
+	 * 			The password used to store the stego
+	 */
+	public ShuffledPixelOrder(long pixelCount, String password) {
+		pixelArray = new int[(int) pixelCount]; // Create an array of indexes to all the pixels
+		for (int i = pixelArray.length - 1; i >= 0; i--) {
+			pixelArray[i] = i; // Add all of the indexes in order
+		}
+		Random random = new Random(password.hashCode());
+		for (int i = pixelArray.length - 1; i != 0; i--) { // Shuffle the array
+			int randomIndex = random.nextInt(i + 1);
+			int temp = pixelArray[i];
+			pixelArray[i] = pixelArray[randomIndex];
+			pixelArray[randomIndex] = temp;
+		}
+	}
+
+	/**
+	 * Finds the first pixels of the v0.7 order without shuffling an array of every pixel
+	 * Checking for the marker of a v0.7 stego only needs the first pixels of the order, but the shuffle only settles
+	 * them with its last swaps. The shuffle's random numbers are drawn once to save the seed of every block of swaps,
+	 * then drawn again a block at a time from the last block back, undoing the swaps in reverse to follow each of the
+	 * first places back to the pixel that started there. Nothing is held for every pixel but one bit.
+	 *
+	 * @param pixelCount
+	 * 			The number of pixels in the host image, at most MAX_PIXELS
+	 * @param password
+	 * 			The password used to store the stego
+	 * @param count
+	 * 			The number of pixels to find at the start of the order
+	 * @return The pixel order, which can only return its first count pixels
+	 */
+	public static PixelOrder getPrefix(long pixelCount, String password, int count) {
+		int n = (int) pixelCount;
+		count = Math.min(count, n);
+		int swaps = n - 1; // The shuffle swaps each place from the last down to the second with a random place up to it
+		long[] seeds = new long[(swaps + BLOCK_SIZE - 1) / BLOCK_SIZE];
+		Draws draws = new Draws(password.hashCode());
+		for (int swap = 0; swap < swaps; swap++) {
+			if (swap % BLOCK_SIZE == 0) {
+				seeds[swap / BLOCK_SIZE] = draws.seed;
+			}
+			draws.nextInt(n - swap);
+		}
+		int[] places = new int[count]; // Where the pixel that ends up in each of the first places is before the swaps undone so far
+		BitSet followed = new BitSet(n); // The places in places
+		for (int i = 0; i < count; i++) {
+			places[i] = i;
+		}
+		followed.set(0, count);
+		int[] randomIndexes = new int[BLOCK_SIZE];
+		for (int block = seeds.length - 1; block >= 0; block--) {
+			int start = block * BLOCK_SIZE;
+			int end = Math.min(swaps, start + BLOCK_SIZE);
+			draws.seed = seeds[block];
+			for (int swap = start; swap < end; swap++) {
+				randomIndexes[swap - start] = draws.nextInt(n - swap);
+			}
+			for (int swap = end - 1; swap >= start; swap--) { // Undo the swaps of the block, last first
+				int i = n - 1 - swap;
+				int randomIndex = randomIndexes[swap - start];
+				boolean atI = followed.get(i);
+				boolean atRandomIndex = followed.get(randomIndex);
+				if (atI || atRandomIndex) { // Rarely true, since only a few places are followed
+					for (int j = 0; j < count; j++) {
+						if (places[j] == i) {
+							places[j] = randomIndex;
+						} else if (places[j] == randomIndex) {
+							places[j] = i;
+						}
+					}
+					if (atI != atRandomIndex) {
+						followed.flip(i);
+						followed.flip(randomIndex);
+					}
+				}
+			}
+		}
+		Prefix prefix = new Prefix();
+		prefix.pixelCount = pixelCount;
+		prefix.pixels = new long[count];
+		for (int i = 0; i < count; i++) {
+			prefix.pixels[i] = places[i]; // Every pixel starts in the place of its own index
+		}
+		return prefix;
+	}
+
+	public long getPixel(long index) {
+		return pixelArray[(int) index];
+	}
+
+	public long getPixelCount() {
+		return pixelArray.length;
+	}
+
+	public long getMemoryUsage() {
+		return 4L * pixelArray.length;
+	}
+}
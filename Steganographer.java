@@ -1,17 +1,24 @@
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.text.DecimalFormat;
+import java.util.zip.Deflater;
 
 // By: Justin Spedding & Andrew Miller
 
 public class Steganographer {
 
-	public static final String version = "v0.7"; // Version number
+	public static final String version = "v0.8"; // Version number
+	public static final int MAX_DEPTH = 8; // Every bit of each color, as v0.7 used
 	private static String marker = "SECRET"; // The string that marks images that contain an encoded file
-	private static int workerCount; // The number of encode/decode operations currently running
+	private static Layout layout = Layout.KEYED; // The layout used for newly encoded stegos, which fills the lowest bits of every pixel first like v0.7
+	private static int depth = MAX_DEPTH; // The number of least significant bits of each color newly encoded stegos may use
+	private static Codec codec = Codec.NONE; // The codec used to compress newly encoded stegos
+	private static int compressionLevel = Deflater.DEFAULT_COMPRESSION; // The Deflate level used for newly encoded stegos
+	private static JobScheduler scheduler = new JobScheduler(Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors())), Runtime.getRuntime().maxMemory() / 4 * 3); // Runs the encode, decode and analyze operations of every window
 
 	/**
 	 * Checks if a stego can be encoded into a host image
@@ -27,8 +34,25 @@ public class Steganographer {
 	 * 			Throws if an IO error occurred
 	 */
 	public static boolean canEncode(BufferedImage hostImage, RandomAccessFile stego, int fileNameLength) throws IOException {
-		if (hostImage != null && stego != null && fileNameLength > 0) { // If both files exist and the file name is valid
-			if ((marker.length() * 2) + (8) + (fileNameLength * 2) + (stego.length()) <= getCapacity(hostImage)) {
+		return hostImage != null && canEncode(new PackedRaster(hostImage), stego, fileNameLength);
+	}
+
+	/**
+	 * Checks if a stego can be encoded into a host image of any size with the current layout
+	 *
+	 * @param raster
+	 * 			The pixels of the host image
+	 * @param stego
+	 * 			The stego
+	 * @param fileNameLength
+	 * 			The number of characters in the name of the stego
+	 * @return True if encoding will work, false if not
+	 * @throws IOException
+	 * 			Throws if an IO error occurred
+	 */
+	public static boolean canEncode(HostRaster raster, RandomAccessFile stego, int fileNameLength) throws IOException {
+		if (raster != null && stego != null && fileNameLength > 0 && raster.getPixelCount() <= layout.getMaxPixelCount()) { // If both files exist and the file name is valid
+			if (codec.getMaxSize(stego.length()) <= StegoHeader.getCapacity(raster.getPixelCount(), layout, depth, fileNameLength)) { // Even if it does not compress at all
 				return true;
 			}
 		}
@@ -47,23 +71,101 @@ public class Steganographer {
 	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
 	 */
 	public static boolean canDecode(BufferedImage hostImage, String password) throws ImageOverflowException {
-		int capacity = getCapacity(hostImage); // How many bytes can be stored in this image
-		if (capacity > (marker.length() * 2) + (8)) { // If the host image is big enough to store a file
-			ImageReader imageReader = new ImageReader(hostImage, password); // Initialize the host image manipulator
-			String secret = ImageRW.readString(imageReader, marker.length()); // Get the marker
-			if (secret.equals(marker)) { // If it is correct
+		return probe(hostImage, password) != null;
+	}
+
+	/**
+	 * Parses the header of the stego inside a host image
+	 * The header is parsed once, and the result holds everything needed to decode the stego.
+	 *
+	 * @param hostImage
+	 * 			The BufferedImage of the host image
+	 * @param password
+	 * 			The password used to store the stego
+	 * @return The parsed header, or null if the host image does not contain a valid hidden file
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public static StegoHeader probe(BufferedImage hostImage, String password) throws ImageOverflowException {
+		return probe(new PackedRaster(hostImage), password);
+	}
+
+	/**
+	 * Parses the header of the stego inside a host image of any size
+	 * Every v0.8 header starts in the same layout and depth, so finding out how a stego was stored takes one read. Only
+	 * when that fails is the image checked for a v0.7 stego, which needs just the first pixels of the shuffled order.
+	 *
+	 * @param raster
+	 * 			The pixels of the host image
+	 * @param password
+	 * 			The password used to store the stego
+	 * @return The parsed header, or null if the host image does not contain a valid hidden file
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public static StegoHeader probe(HostRaster raster, String password) throws ImageOverflowException {
+		long pixelCount = raster.getPixelCount();
+		StegoHeader header = null;
+		if (pixelCount >= 8L * StegoHeader.getBootstrapSize()) { // If the host image is big enough to store a v0.8 header
+			ImageReader imageReader = new ImageReader(raster, password, StegoHeader.BOOTSTRAP_LAYOUT, StegoHeader.BOOTSTRAP_DEPTH);
+			if (readMarker(imageReader) && ImageRW.readInt(imageReader) == StegoHeader.FORMAT) {
+				header = readHeader(raster, password, imageReader);
+			}
+		}
+		if (header == null && pixelCount <= Layout.SHUFFLED.getMaxPixelCount() && getCapacity(pixelCount, MAX_DEPTH) > (marker.length() * 2) + (8)) { // If the host image is big enough to store a v0.7 header
+			int markerBits = marker.length() * 16;
+			PixelOrder markerOrder = ShuffledPixelOrder.getPrefix(pixelCount, password, markerBits + 1); // Shuffling every pixel would cost far more than reading the marker
+			if (readMarker(new ImageReader(raster, markerOrder, Layout.SHUFFLED, MAX_DEPTH))) {
+				ImageReader imageReader = new ImageReader(raster, password, Layout.SHUFFLED, MAX_DEPTH); // v0.7 used every bit
+				imageReader.seek(markerBits);
 				int fileSize = ImageRW.readInt(imageReader); // Get the file length
 				if (fileSize >= 0) {
-					int fileNameLength = ImageRW.readInt(imageReader); // Get the file name length
-					if (fileNameLength > 0 && fileNameLength < 256) {
-						if ((marker.length() * 2) + (8) + (fileNameLength * 2) + (fileSize) <= capacity) {
-							return true;
-						}
-					}
+					header = readLegacyHeader(pixelCount, imageReader, fileSize);
 				}
 			}
 		}
-		return false;
+		return header;
+	}
+
+	private static boolean readMarker(ImageReader imageReader) throws ImageOverflowException {
+		for (int i = 0; i < marker.length(); i++) { // Stop at the first wrong character, so clean images read as few pixels as possible
+			if (ImageRW.readChar(imageReader) != marker.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static StegoHeader readHeader(HostRaster raster, String password, ImageReader imageReader) throws ImageOverflowException {
+		long pixelCount = raster.getPixelCount();
+		int flags = ImageRW.readInt(imageReader); // Get the flags
+		Layout layout = Layout.forId(ImageRW.readByte(imageReader)); // Get the layout the stego was stored with
+		int depth = ImageRW.readByte(imageReader); // Get the depth the stego was stored with
+		Codec codec = Codec.forId(ImageRW.readByte(imageReader)); // Get the codec
+		if (flags == 0 && layout != null && pixelCount <= layout.getMaxPixelCount() && depth >= 1 && depth <= MAX_DEPTH && codec != null) { // Only options this version understands
+			imageReader = new ImageReader(raster, password, layout, depth); // The rest is stored in the stego's own layout and depth
+			imageReader.seek(StegoHeader.getPayloadStart(pixelCount, layout, depth));
+			long fileSize = ImageRW.readLong(imageReader); // Get the file length
+			int fileNameLength = ImageRW.readInt(imageReader); // Get the file name length
+			if (fileSize >= 0 && fileNameLength > 0 && fileNameLength < 256) {
+				if (codec != Codec.NONE || fileSize <= StegoHeader.getCapacity(pixelCount, layout, depth, fileNameLength)) { // Compressed stegos can be bigger than the image
+					String fileName = ImageRW.readString(imageReader, fileNameLength); // Get the file name
+					return new StegoHeader(StegoHeader.FORMAT, flags, layout, depth, codec, fileSize, fileName, imageReader);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static StegoHeader readLegacyHeader(long pixelCount, ImageReader imageReader, int fileSize) throws ImageOverflowException {
+		int fileNameLength = ImageRW.readInt(imageReader); // Get the file name length
+		if (fileNameLength > 0 && fileNameLength < 256) {
+			if ((marker.length() * 2) + (8) + (fileNameLength * 2) + (fileSize) <= getCapacity(pixelCount, MAX_DEPTH)) { // v0.7 used every bit
+				String fileName = ImageRW.readString(imageReader, fileNameLength); // Get the file name
+				return new StegoHeader(StegoHeader.LEGACY_FORMAT, 0, imageReader.getLayout(), imageReader.getDepth(), Codec.NONE, fileSize, fileName, imageReader);
+			}
+		}
+		return null;
 	}
 
 	/**
@@ -78,22 +180,19 @@ public class Steganographer {
 	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
 	 */
 	public static String getInfo(BufferedImage hostImage, String password) throws ImageOverflowException {
-		int capacity = getCapacity(hostImage); // How many bytes can be stored in this image
-		if (capacity > (marker.length() * 2) + (8)) { // If the host image is big enough to store a file
-			ImageReader image = new ImageReader(hostImage, password); // Initialize the host image manipulator
-			String secret = ImageRW.readString(image, marker.length()); // Get the first 6 chars
-			if (secret.equals(marker)) { // If they are correct
-				int fileSize = ImageRW.readInt(image); // Get the file length
-				if (fileSize >= 0) {
-					int fileNameLength = ImageRW.readInt(image); // Get the file name length
-					if (fileNameLength > 0 && fileNameLength < 256) {
-						String fileName = ImageRW.readString(image, fileNameLength); // Get the file name
-						if ((marker.length() * 2) + (8) + (fileNameLength * 2) + (fileSize) <= capacity) {
-							return "Stego file name: \"" + fileName + "\",  Size: " + fileSizeToString(fileSize);
-						}
-					}
-				}
-			}
+		return getInfo(probe(hostImage, password));
+	}
+
+	/**
+	 * Returns a string containing info about a parsed header
+	 *
+	 * @param header
+	 * 			The parsed header, or null if there is no valid stego
+	 * @return A string containing info about the stego
+	 */
+	public static String getInfo(StegoHeader header) {
+		if (header != null) {
+			return "Stego file name: \"" + header.getFileName() + "\",  Size: " + fileSizeToString(header.getFileSize());
 		}
 		return "The host image does not contain a valid stego.";
 	}
@@ -119,15 +218,54 @@ public class Steganographer {
 	}
 
 	/**
-	 * Returns the number of bytes that can be stored in a host image
+	 * Returns the number of bytes that can be stored in a host image at the current depth
 	 *
 	 * @param hostImage
 	 * 			The BufferedImage of the host image
 	 * @return The number of bytes that can be stored in the host image
 	 */
-	public static int getCapacity(BufferedImage hostImage) {
-		return (hostImage.getWidth() * hostImage.getHeight() * 3);
+	public static long getCapacity(BufferedImage hostImage) {
+		return getCapacity(hostImage, depth);
 	}
+
+	/**
+	 * Returns the number of bytes that can be stored in a host image using some of the least significant bits of each color
+	 * Every layout stores the same number of bits, pixel-major ones just store them a pixel at a time.
+	 *
+	 * @param hostImage
+	 * 			The BufferedImage of the host image
+	 * @param depth
+	 * 			The number of least significant bits of each color to use, from 1 to 8
+	 * @return The number of bytes that can be stored in the host image
+	 */
+	public static long getCapacity(BufferedImage hostImage, int depth) {
+		return getCapacity((long) hostImage.getWidth() * hostImage.getHeight(), depth);
+	}
+
+	/**
+	 * Returns the number of bytes that can be stored in a number of pixels using some of the least significant bits of each color
+	 *
+	 * @param pixelCount
+	 * 			The number of pixels in the host image
+	 * @param depth
+	 * 			The number of least significant bits of each color to use, from 1 to 8
+	 * @return The number of bytes that can be stored in the pixels
+	 */
+	public static long getCapacity(long pixelCount, int depth) {
+		return pixelCount * 3 * depth / 8;
+	}
+	/**
+	 * Returns the number of bytes the pixels of an image take up in memory
+	 *
+	 * @param image
+	 * 			The image
+	 * @return The memory used by the pixels in bytes
+	 */
+	public static long getMemoryUsage(BufferedImage image) {
+		DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+		return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+	}
+
 	/**
 	 * Checks if an output directory path is valid
 	 *
@@ -180,25 +318,101 @@ public class Steganographer {
 	}
 
 	/**
-	 * Increments the number of workers currently running
+	 * Returns the number of least significant bits of each color newly encoded stegos may use
+	 *
+	 * @return The depth, from 1 to MAX_DEPTH
+	 */
+	public static int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Sets the number of least significant bits of each color newly encoded stegos may use
+	 * Pass-major layouts fill the lowest bit of every pixel first, so the depth only caps how much fits. The pixel-major
+	 * layout writes every one of these bits of a pixel in one visit, so shallow depths fit less but change the host
+	 * image less visibly, and deeper ones encode faster.
+	 *
+	 * @param depth
+	 * 			The depth, from 1 to MAX_DEPTH
+	 */
+	public static void setDepth(int depth) {
+		Steganographer.depth = depth;
+	}
+
+	/**
+	 * Returns the codec used to compress newly encoded stegos
+	 *
+	 * @return The codec
+	 */
+	public static Codec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Sets the codec used to compress newly encoded stegos
+	 *
+	 * @param codec
+	 * 			The codec
+	 */
+	public static void setCodec(Codec codec) {
+		Steganographer.codec = codec;
+	}
+
+	/**
+	 * Returns the Deflate level used for newly encoded stegos
+	 *
+	 * @return The compression level, from 1 to 9, or Deflater.DEFAULT_COMPRESSION
 	 */
-	public static void addWorker() {
-		workerCount++;
+	public static int getCompressionLevel() {
+		return compressionLevel;
 	}
 
 	/**
-	 * Decrements the number of workers currently running
+	 * Sets the Deflate level used for newly encoded stegos
+	 *
+	 * @param compressionLevel
+	 * 			The compression level, from 1 to 9, or Deflater.DEFAULT_COMPRESSION
+	 */
+	public static void setCompressionLevel(int compressionLevel) {
+		Steganographer.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * Returns the layout used for newly encoded stegos
+	 *
+	 * @return The layout used for newly encoded stegos
+	 */
+	public static Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Sets the layout used for newly encoded stegos
+	 * Stegos are always decoded with the layout they were encoded with, regardless of this setting.
+	 *
+	 * @param layout
+	 * 			The layout used for newly encoded stegos
+	 */
+	public static void setLayout(Layout layout) {
+		Steganographer.layout = layout;
+	}
+
+	/**
+	 * Returns the scheduler that runs the encode, decode and analyze operations of every window
+	 * Each operation already spreads its own work over every core, so only a couple run at a time.
+	 *
+	 * @return The job scheduler
 	 */
-	public static void removeWorker() {
-		workerCount --;
+	public static JobScheduler getScheduler() {
+		return scheduler;
 	}
 
 	/**
-	 * Returns the number of workers currently running
+	 * Returns the number of operations currently running or waiting to run
 	 *
-	 * @return The number of workers currently running
+	 * @return The number of operations currently running or waiting to run
 	 */
 	public static int getWorkerCount() {
-		return workerCount;
+		return scheduler.getActiveJobCount() + scheduler.getQueuedJobCount();
 	}
 }
@@ -0,0 +1,207 @@
+// By: Justin Spedding & Andrew Miller
+
+public class StegoHeader {
+
+	public static final int LEGACY_FORMAT = 0; // v0.7 headers have no format id, the file size follows the marker
+	public static final int FORMAT = 0xFFFF0008; // Written after the marker by v0.8, negative so v0.7 sees an invalid file size
+	public static final Layout BOOTSTRAP_LAYOUT = Layout.KEYED; // The layout the start of every v0.8 header is written in, whatever the stego uses
+	public static final int BOOTSTRAP_DEPTH = 1; // The depth the start of every v0.8 header is written in
+
+	private int format; // The format of the header
+	private int flags; // Options the stego was stored with, none are defined yet
+	private Layout layout; // The layout the stego was stored with
+	private int depth; // The number of least significant bits of each color the stego was stored in
+	private Codec codec; // The codec the stego was stored with
+	private long fileSize; // The number of bytes in the stego
+	private String fileName; // The name of the stego
+	private ImageReader imageReader; // Positioned at the first byte of the stego
+
+	/**
+	 * Constructs a parsed header
+	 *
+	 * @param format
+	 * 			The format of the header, LEGACY_FORMAT or FORMAT
+	 * @param flags
+	 * 			Options the stego was stored with
+	 * @param layout
+	 * 			The layout the stego was stored with
+	 * @param depth
+	 * 			The number of least significant bits of each color the stego was stored in
+	 * @param codec
+	 * 			The codec the stego was stored with
+	 * @param fileSize
+	 * 			The number of bytes in the stego
+	 * @param fileName
+	 * 			The name of the stego
+	 * @param imageReader
+	 * 			The image reader that parsed the header, positioned at the first byte of the stego
+	 */
+	public StegoHeader(int format, int flags, Layout layout, int depth, Codec codec, long fileSize, String fileName, ImageReader imageReader) {
+		this.format = format;
+		this.flags = flags;
+		this.layout = layout;
+		this.depth = depth;
+		this.codec = codec;
+		this.fileSize = fileSize;
+		this.fileName = fileName;
+		this.imageReader = imageReader;
+	}
+
+	/**
+	 * Returns the number of bytes at the start of a header that are written in the bootstrap layout and depth
+	 * They hold the marker, the format, the flags and the layout, depth and codec the rest is stored with, so a reader
+	 * finds out how a stego was stored by reading one place instead of trying every layout and depth.
+	 *
+	 * @return The size of the bootstrap in bytes
+	 */
+	public static int getBootstrapSize() {
+		return (Steganographer.getMarker().length() * 2) + (4 + 4 + 3);
+	}
+
+	/**
+	 * Returns the position at which the rest of a header and the stego start, past every bit the bootstrap uses
+	 *
+	 * @param pixelCount
+	 * 			The number of pixels in the host image
+	 * @param layout
+	 * 			The layout the stego is stored with
+	 * @param depth
+	 * 			The number of least significant bits of each color the stego is stored in
+	 * @return The number of bits in the layout and depth that come before the rest of the header
+	 */
+	public static long getPayloadStart(long pixelCount, Layout layout, int depth) {
+		long bootstrapBits = 8L * getBootstrapSize(); // One bit in each of the first pixels of the keyed order
+		if (layout == BOOTSTRAP_LAYOUT) {
+			return bootstrapBits; // Pass-major positions do not depend on the depth, so carry straight on
+		} else if (layout.isPixelMajor()) {
+			return bootstrapBits * 3 * depth; // Same order, so skip every pixel the bootstrap touched
+		}
+		return pixelCount; // Any other order could visit those pixels first, so skip the only pass the bootstrap uses
+	}
+
+	/**
+	 * Returns the number of stego bytes that fit in a host image after a header written by this version
+	 *
+	 * @param pixelCount
+	 * 			The number of pixels in the host image
+	 * @param layout
+	 * 			The layout the stego is stored with
+	 * @param depth
+	 * 			The number of least significant bits of each color the stego is stored in
+	 * @param fileNameLength
+	 * 			The number of characters in the name of the stego
+	 * @return The number of bytes that fit, or a negative number if not even the header does
+	 */
+	public static long getCapacity(long pixelCount, Layout layout, int depth, int fileNameLength) {
+		if (pixelCount < 8L * getBootstrapSize()) {
+			return -1; // The bootstrap must fit in one pass over the pixels
+		}
+		return (3L * depth * pixelCount - getPayloadStart(pixelCount, layout, depth)) / 8 - (8 + 4) - (fileNameLength * 2);
+	}
+
+	/**
+	 * Writes a header for a stego, leaving the image writer positioned at the first byte of the stego
+	 * The bootstrap is written in BOOTSTRAP_LAYOUT and BOOTSTRAP_DEPTH, and the file size and name in the layout and
+	 * depth of the image writer, after getPayloadStart().
+	 *
+	 * @param imageWriter
+	 * 			The image writer for the layout and depth the stego is stored with
+	 * @param password
+	 * 			The password used to store the stego
+	 * @param codec
+	 * 			The codec the stego is stored with
+	 * @param fileSize
+	 * 			The number of bytes in the stego before it is stored
+	 * @param fileName
+	 * 			The name of the stego
+	 * @throws ImageOverflowException
+	 * 			Throws if the internal algorithm tries to write to a pixel that does not exist
+	 */
+	public static void write(ImageWriter imageWriter, String password, Codec codec, long fileSize, String fileName) throws ImageOverflowException {
+		HostRaster raster = imageWriter.getRaster();
+		ImageWriter bootstrapWriter = new ImageWriter(raster, password, BOOTSTRAP_LAYOUT, BOOTSTRAP_DEPTH);
+		ImageRW.writeString(bootstrapWriter, Steganographer.getMarker()); // Mark the image as having a hidden file
+		ImageRW.writeInt(bootstrapWriter, FORMAT); // Tell v0.8 readers which header follows
+		ImageRW.writeInt(bootstrapWriter, 0); // Write the flags
+		ImageRW.writeByte(bootstrapWriter, (byte) imageWriter.getLayout().getId()); // Write the layout
+		ImageRW.writeByte(bootstrapWriter, (byte) imageWriter.getDepth()); // Write the depth
+		ImageRW.writeByte(bootstrapWriter, (byte) codec.getId()); // Write the codec
+		imageWriter.seek(getPayloadStart(raster.getPixelCount(), imageWriter.getLayout(), imageWriter.getDepth())); // Switch to the stego's own layout and depth
+		ImageRW.writeLong(imageWriter, fileSize); // Write the size of the file
+		ImageRW.writeInt(imageWriter, fileName.length()); // Write the length of the file name
+		ImageRW.writeString(imageWriter, fileName); // Write the file's name
+	}
+
+	/**
+	 * Returns the format of the header
+	 *
+	 * @return LEGACY_FORMAT for v0.7 headers, FORMAT for v0.8 headers
+	 */
+	public int getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns the options the stego was stored with
+	 *
+	 * @return The flags
+	 */
+	public int getFlags() {
+		return flags;
+	}
+
+	/**
+	 * Returns the layout the stego was stored with
+	 *
+	 * @return The layout
+	 */
+	public Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Returns the number of least significant bits of each color the stego was stored in
+	 *
+	 * @return The depth
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the codec the stego was stored with
+	 *
+	 * @return The codec
+	 */
+	public Codec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Returns the number of bytes in the stego, before it was compressed
+	 *
+	 * @return The size of the stego
+	 */
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	/**
+	 * Returns the name of the stego
+	 *
+	 * @return The name of the stego
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Returns a new image reader positioned at the first byte of the stego
+	 * Every call returns a separate reader, so the same header can be decoded more than once.
+	 *
+	 * @return An image reader positioned at the first byte of the stego
+	 */
+	public ImageReader getImageReader() {
+		return new ImageReader(imageReader);
+	}
+}
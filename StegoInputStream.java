@@ -0,0 +1,46 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+// By: Justin Spedding & Andrew Miller
+
+public class StegoInputStream extends InputStream {
+
+	private ImageReader imageReader; // The image reader to read with
+	private ParallelDecoder parallelDecoder; // Reads the bytes on several threads
+
+	/**
+	 * Constructs a stream that reads bytes from the next bits of a host image, up to the last whole byte it can hold
+	 * An ImageOverflowException from the image reader is thrown as the cause of an IOException.
+	 *
+	 * @param imageReader
+	 * 			The image reader to read with, which is left positioned after the last byte read
+	 * @param parallelDecoder
+	 * 			The decoding engine to read the bytes with
+	 */
+	public StegoInputStream(ImageReader imageReader, ParallelDecoder parallelDecoder) {
+		this.imageReader = imageReader;
+		this.parallelDecoder = parallelDecoder;
+	}
+
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		long remaining = (imageReader.getBitCapacity() - imageReader.getPosition()) / 8 - 1; // Moving past the last bit overflows, so stop a byte early
+		if (len == 0) {
+			return 0;
+		} else if (remaining <= 0) {
+			return -1;
+		}
+		int n = (int) Math.min(len, remaining);
+		try {
+			parallelDecoder.readBytes(imageReader, ByteBuffer.wrap(b, off, n));
+		} catch (ImageOverflowException e) {
+			throw new IOException(e);
+		}
+		return n;
+	}
+}
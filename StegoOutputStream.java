@@ -0,0 +1,36 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+// By: Justin Spedding & Andrew Miller
+
+public class StegoOutputStream extends OutputStream {
+
+	private ImageWriter imageWriter; // The image writer to write with
+	private ParallelEncoder parallelEncoder; // Writes the bytes on several threads
+
+	/**
+	 * Constructs a stream that writes bytes to the next bits of a host image
+	 * An ImageOverflowException from the image writer is thrown as the cause of an IOException.
+	 *
+	 * @param imageWriter
+	 * 			The image writer to write with, which is left positioned after the last byte written
+	 * @param parallelEncoder
+	 * 			The encoding engine to write the bytes with
+	 */
+	public StegoOutputStream(ImageWriter imageWriter, ParallelEncoder parallelEncoder) {
+		this.imageWriter = imageWriter;
+		this.parallelEncoder = parallelEncoder;
+	}
+
+	public void write(int b) throws IOException {
+		write(new byte[] {(byte) b}, 0, 1);
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+		try {
+			parallelEncoder.writeBytes(imageWriter, b, off, len);
+		} catch (ImageOverflowException e) {
+			throw new IOException(e);
+		}
+	}
+}
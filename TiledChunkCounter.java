@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+// By: Justin Spedding & Andrew Miller
+
+public class TiledChunkCounter {
+
+	private int width; // The number of pixels in each row
+	private ChunkCounter[] tiles; // Counts the chunks of one tile each
+	private int[] borderParents; // Union-find forest over the border labels of every tile
+
+	/**
+	 * Constructs a counter that splits a plane into tiles of whole rows, which can be counted at the same time
+	 *
+	 * @param width
+	 * 			The number of pixels in each row
+	 * @param tileCount
+	 * 			The number of tiles to split the plane into
+	 */
+	public TiledChunkCounter(int width, int tileCount) {
+		this.width = width;
+		tiles = new ChunkCounter[tileCount];
+		for (int i = 0; i < tileCount; i++) {
+			tiles[i] = new ChunkCounter(width);
+		}
+		borderParents = new int[width * 2 * tileCount];
+	}
+
+	/**
+	 * Returns how many bytes of working memory a tiled counter holds on to
+	 *
+	 * @param width
+	 * 			The number of pixels in each row
+	 * @param tileCount
+	 * 			The number of tiles
+	 * @return The memory used by the counter in bytes
+	 */
+	public static long getMemoryUsage(int width, int tileCount) {
+		return (ChunkCounter.getMemoryUsage(width) + 8L * width) * tileCount;
+	}
+
+	/**
+	 * Returns the number of tiles the plane is split into
+	 *
+	 * @return The number of tiles
+	 */
+	public int getTileCount() {
+		return tiles.length;
+	}
+
+	/**
+	 * Counts the chunks in one tile of a plane
+	 * Different tiles can be counted on different threads at the same time.
+	 *
+	 * @param tile
+	 * 			The tile to count, from 0 to getTileCount() - 1
+	 * @param words
+	 * 			The packed bits of the plane
+	 * @param wordsPerRow
+	 * 			The number of longs that hold one row of the plane
+	 * @param height
+	 * 			The number of rows in the plane
+	 */
+	public void countTile(int tile, long[] words, int wordsPerRow, int height) {
+		countRows(tile, words, wordsPerRow, height, 0, height);
+	}
+
+	/**
+	 * Counts the chunks in some rows of one tile of a plane, continuing from the rows counted before
+	 * The rows of each tile must be counted in order, starting from row 0 of the tile, which resets its count.
+	 *
+	 * @param tile
+	 * 			The tile to count, from 0 to getTileCount() - 1
+	 * @param words
+	 * 			The packed bits of the plane
+	 * @param wordsPerRow
+	 * 			The number of longs that hold one row of the plane
+	 * @param height
+	 * 			The number of rows in the plane
+	 * @param start
+	 * 			The first row to count, relative to the top of the tile
+	 * @param rows
+	 * 			The most rows to count, fewer if the tile ends first
+	 * @return The number of rows counted
+	 */
+	public int countRows(int tile, long[] words, int wordsPerRow, int height, int start, int rows) {
+		ChunkCounter chunkCounter = tiles[tile];
+		if (start == 0) {
+			chunkCounter.reset();
+		}
+		int tileStart = getTileStart(tile, height);
+		int end = (int) Math.min(getTileStart(tile + 1, height), (long) tileStart + start + rows);
+		for (int row = tileStart + start; row < end; row++) {
+			chunkCounter.addRow(words, row * wordsPerRow);
+		}
+		return Math.max(0, end - tileStart - start);
+	}
+
+	/**
+	 * Returns the number of rows in the tallest tile
+	 *
+	 * @param height
+	 * 			The number of rows in the plane
+	 * @return The number of rows
+	 */
+	public int getMaxTileHeight(int height) {
+		return (height + tiles.length - 1) / tiles.length;
+	}
+
+	private int getTileStart(int tile, int height) {
+		return (int) ((long) tile * height / tiles.length);
+	}
+
+	/**
+	 * Returns the number of chunks in the whole plane, once every tile has been counted
+	 * Chunks that cross the border between two tiles were counted once in each, so they are merged here.
+	 *
+	 * @return The number of chunks
+	 */
+	public int getChunkCount() {
+		int chunkCount = 0;
+		for (ChunkCounter chunkCounter : tiles) {
+			chunkCount += chunkCounter.getChunkCount();
+		}
+		Arrays.setAll(borderParents, i -> i);
+		for (int i = 0; i + 1 < tiles.length; i++) {
+			chunkCount -= ChunkCounter.mergeBorder(tiles[i], tiles[i + 1], borderParents, width * 2 * i, width * 2 * (i + 1));
+		}
+		return chunkCount;
+	}
+}
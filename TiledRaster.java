@@ -0,0 +1,258 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.imageio.ImageReadParam;
+
+// By: Justin Spedding & Andrew Miller
+
+public class TiledRaster extends HostRaster {
+
+	private static final int TILE_BITS = 8; // Tiles are 256 by 256 pixels
+	private static final int TILE_SIZE = 1 << TILE_BITS;
+	private static final int TILE_MASK = TILE_SIZE - 1;
+	private static final int TILE_BYTES = TILE_SIZE * TILE_SIZE * 4; // The most bytes a tile takes up
+
+	private int width; // The width of the image
+	private int height; // The height of the image
+	private int tilesAcross; // The number of tiles in a row of tiles
+	private int maxTiles; // The most tiles held in memory at once
+	private LinkedHashMap<Long, Tile> tiles; // The tiles in memory, least recently used first
+	private Tile lastTile; // The tile used last, checked before the map
+	private int bandRows; // The number of rows decoded at once while loading
+	private File spillFile; // Holds the decoded tiles that do not fit in memory, created when first needed
+	private FileChannel spill; // The open spill file
+	private BitSet spilled; // The tiles that are in the spill file
+	private ByteBuffer spillBuffer; // Moves tiles in and out of the spill file
+
+	private static class Tile {
+		long index; // The row-major index of the tile
+		int x; // The left edge of the tile in the image
+		int y; // The top edge of the tile in the image
+		int width; // The width of the tile, less than TILE_SIZE at the right edge of the image
+		int height; // The height of the tile, less than TILE_SIZE at the bottom edge of the image
+		int[] pixels; // The packed RGB values of the tile, row after row
+		boolean dirty; // Whether the tile has changed since it was loaded
+	}
+
+	/**
+	 * Constructs a raster that decodes an image once and keeps only some of its tiles in memory
+	 * The image is decoded top to bottom in bands of whole rows, as tall as the tile cache allows, since formats like
+	 * PNG can only be decoded from the start and reading each tile on its own would decode the image again for every
+	 * tile. At most cacheSize bytes of tiles are kept in memory, dropping the least recently used first, and the rest
+	 * are saved decoded to a temporary file. The pixels on the heap stay bounded however big the image is and no tile
+	 * is decoded twice. A random pixel order touches a new tile for almost every pixel, so the cache works best with
+	 * small stegos or images that are read a row at a time. The raster must be closed to delete the temporary file.
+	 *
+	 * @param reader
+	 * 			The image reader, with its input set to the image
+	 * @param cacheSize
+	 * 			The most bytes of tiles to keep in memory
+	 * @throws IOException
+	 * 			Throws if the image cannot be decoded or the temporary file cannot be written
+	 */
+	public TiledRaster(javax.imageio.ImageReader reader, long cacheSize) throws IOException {
+		width = reader.getWidth(0);
+		height = reader.getHeight(0);
+		tilesAcross = (width + TILE_MASK) >>> TILE_BITS;
+		maxTiles = getMaxTiles(width, cacheSize);
+		bandRows = getBandRows(width, height, cacheSize);
+		tiles = new LinkedHashMap<Long, Tile>(16, 0.75f, true);
+		spilled = new BitSet();
+		try {
+			decode(reader);
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public synchronized int getPixel(long pixel) {
+		int y = (int) (pixel / width);
+		int x = (int) (pixel - (long) y * width);
+		Tile tile = getTile(x, y);
+		return tile.pixels[(y - tile.y) * tile.width + (x - tile.x)];
+	}
+
+	public synchronized void setPixel(long pixel, int rgb) {
+		int y = (int) (pixel / width);
+		int x = (int) (pixel - (long) y * width);
+		Tile tile = getTile(x, y);
+		tile.pixels[(y - tile.y) * tile.width + (x - tile.x)] = rgb;
+		tile.dirty = true;
+	}
+
+	public synchronized void getRow(int y, int[] rgbRow) {
+		for (int x = 0; x < width; x += TILE_SIZE) {
+			Tile tile = getTile(x, y);
+			System.arraycopy(tile.pixels, (y - tile.y) * tile.width, rgbRow, x, tile.width);
+		}
+	}
+
+	public synchronized void setRow(int y, int[] rgbRow) {
+		for (int x = 0; x < width; x += TILE_SIZE) {
+			Tile tile = getTile(x, y);
+			System.arraycopy(rgbRow, x, tile.pixels, (y - tile.y) * tile.width, tile.width);
+			tile.dirty = true;
+		}
+	}
+
+	public long getMemoryUsage() {
+		return Math.min((long) maxTiles * TILE_BYTES, 4L * width * height) + 4L * width * bandRows;
+	}
+
+	/**
+	 * Returns the most bytes of tiles and decoded rows a raster of an image of a given size would hold in memory
+	 *
+	 * @param width
+	 * 			The width of the image
+	 * @param height
+	 * 			The height of the image
+	 * @param cacheSize
+	 * 			The most bytes of tiles to keep in memory
+	 * @return The memory the raster would use in bytes
+	 */
+	public static long getMemoryUsage(int width, int height, long cacheSize) {
+		return Math.min((long) getMaxTiles(width, cacheSize) * TILE_BYTES, 4L * width * height) + 4L * width * getBandRows(width, height, cacheSize);
+	}
+
+	private static int getMaxTiles(int width, long cacheSize) {
+		int tilesAcross = (width + TILE_MASK) >>> TILE_BITS;
+		return (int) Math.max(tilesAcross + 1, Math.min(Integer.MAX_VALUE, cacheSize / TILE_BYTES)); // A whole row of tiles fits, so rows are streamed without reloading
+	}
+
+	private static int getBandRows(int width, int height, long cacheSize) {
+		long rows = cacheSize / (4L * width) >>> TILE_BITS << TILE_BITS; // Bands start on a row of tiles
+		return (int) Math.min(height, Math.max(TILE_SIZE, rows));
+	}
+
+	public BufferedImage getImage() {
+		return null;
+	}
+
+	/**
+	 * Deletes the spill file
+	 *
+	 * @throws IOException
+	 * 			Throws if there is an IO error
+	 */
+	public synchronized void close() throws IOException {
+		tiles.clear();
+		lastTile = null;
+		if (spill != null) {
+			spill.close();
+			spill = null;
+			spillFile.delete();
+		}
+	}
+
+	private void decode(javax.imageio.ImageReader reader) throws IOException {
+		for (int y = 0; y < height; y += bandRows) {
+			ImageReadParam param = reader.getDefaultReadParam();
+			param.setSourceRegion(new Rectangle(0, y, width, Math.min(bandRows, height - y)));
+			BufferedImage band = reader.read(0, param);
+			for (int bandY = 0; bandY < band.getHeight(); bandY += TILE_SIZE) {
+				for (int x = 0; x < width; x += TILE_SIZE) {
+					Tile tile = createTile((long) ((y + bandY) >>> TILE_BITS) * tilesAcross + (x >>> TILE_BITS));
+					band.getRGB(x, bandY, tile.width, tile.height, tile.pixels, 0, tile.width);
+					if (tiles.size() < maxTiles) {
+						tiles.put(tile.index, tile);
+					} else {
+						spill(tile);
+					}
+				}
+			}
+		}
+	}
+
+	private Tile getTile(int x, int y) {
+		long index = (long) (y >>> TILE_BITS) * tilesAcross + (x >>> TILE_BITS);
+		if (lastTile != null && lastTile.index == index) {
+			return lastTile;
+		}
+		Tile tile = tiles.get(index);
+		try {
+			if (tile == null) {
+				if (tiles.size() >= maxTiles) {
+					Iterator<Tile> iterator = tiles.values().iterator();
+					evict(iterator.next());
+					iterator.remove();
+				}
+				tile = load(index);
+				tiles.put(index, tile);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // Pixel access cannot throw checked exceptions
+		}
+		lastTile = tile;
+		return tile;
+	}
+
+	private Tile createTile(long index) {
+		Tile tile = new Tile();
+		tile.index = index;
+		tile.x = (int) (index % tilesAcross) << TILE_BITS;
+		tile.y = (int) (index / tilesAcross) << TILE_BITS;
+		tile.width = Math.min(TILE_SIZE, width - tile.x);
+		tile.height = Math.min(TILE_SIZE, height - tile.y);
+		tile.pixels = new int[tile.width * tile.height];
+		return tile;
+	}
+
+	private Tile load(long index) throws IOException { // Every tile not in memory is in the spill file
+		Tile tile = createTile(index);
+		spillBuffer.clear().limit(tile.pixels.length * 4);
+		long position = index * TILE_BYTES;
+		while (spillBuffer.hasRemaining()) {
+			if (spill.read(spillBuffer, position + spillBuffer.position()) < 0) {
+				throw new IOException("Spill file is truncated");
+			}
+		}
+		spillBuffer.flip();
+		spillBuffer.asIntBuffer().get(tile.pixels);
+		return tile;
+	}
+
+	private void evict(Tile tile) throws IOException {
+		if (tile == lastTile) {
+			lastTile = null;
+		}
+		if (tile.dirty || !spilled.get((int) tile.index)) { // Unchanged tiles are already in the spill file
+			spill(tile);
+		}
+	}
+
+	private void spill(Tile tile) throws IOException {
+		if (spill == null) {
+			spillFile = File.createTempFile("stego", ".tiles");
+			spillFile.deleteOnExit();
+			spill = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+			spillBuffer = ByteBuffer.allocateDirect(TILE_BYTES).order(ByteOrder.nativeOrder());
+		}
+		spillBuffer.clear();
+		spillBuffer.asIntBuffer().put(tile.pixels);
+		spillBuffer.limit(tile.pixels.length * 4);
+		long position = tile.index * TILE_BYTES; // Every tile has a fixed slot, so the file is sparse
+		while (spillBuffer.hasRemaining()) {
+			spill.write(spillBuffer, position + spillBuffer.position());
+		}
+		spilled.set((int) tile.index);
+	}
+}
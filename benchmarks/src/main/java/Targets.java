@@ -0,0 +1,227 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import bench.Workload;
+
+// By: Justin Spedding & Andrew Miller
+
+public class Targets {
+
+	private static final String PASSWORD = "benchmark";
+
+	/**
+	 * Generates a new pixel order on every run, bypassing the pixel order cache
+	 */
+	public static Workload createPixelOrder(String layout, Integer pixelCount) {
+		Layout l = Layout.valueOf(layout);
+		return () -> {
+			PixelOrder order = l.createPixelOrder(pixelCount, PASSWORD);
+			return order.getPixel(pixelCount / 2);
+		};
+	}
+
+	/**
+	 * Looks up every pixel of an order that was generated once
+	 */
+	public static Workload walkPixelOrder(String layout, Integer pixelCount) {
+		PixelOrder order = Layout.valueOf(layout).createPixelOrder(pixelCount, PASSWORD);
+		return () -> {
+			long sum = 0;
+			for (long i = 0; i < pixelCount; i++) {
+				sum += order.getPixel(i);
+			}
+			return sum;
+		};
+	}
+
+	/**
+	 * Writes a payload into an image on the heap with writeBytes, starting over from the first bit on every run
+	 * Runs alternate between two random payloads, so about half of the bits differ from what the last run left in the
+	 * image and are actually stored, as when embedding into a real image.
+	 */
+	public static Workload writeBytes(String layout, Integer depth, Integer width, Integer height, Integer payloadSize) throws Exception {
+		ImageWriter start = new ImageWriter(createImage(width, height, BufferedImage.TYPE_INT_RGB), PASSWORD, Layout.valueOf(layout), depth);
+		byte[][] payloads = createPayloads(payloadSize);
+		int[] runs = new int[1];
+		return () -> {
+			byte[] payload = payloads[runs[0]++ & 1];
+			ImageWriter imageWriter = new ImageWriter(start);
+			imageWriter.writeBytes(payload, 0, payload.length);
+			return imageWriter.getPosition();
+		};
+	}
+
+	/**
+	 * Writes a payload into an image on the heap a bit at a time with writeBit, alternating payloads like writeBytes
+	 */
+	public static Workload writeBits(String layout, Integer depth, Integer width, Integer height, Integer payloadSize) throws Exception {
+		ImageWriter start = new ImageWriter(createImage(width, height, BufferedImage.TYPE_INT_RGB), PASSWORD, Layout.valueOf(layout), depth);
+		byte[][] payloads = createPayloads(payloadSize);
+		int[] runs = new int[1];
+		return () -> {
+			byte[] payload = payloads[runs[0]++ & 1];
+			ImageWriter imageWriter = new ImageWriter(start);
+			for (byte b : payload) {
+				for (int i = 7; i >= 0; i--) {
+					imageWriter.writeBit((b >>> i) & 1);
+				}
+			}
+			return imageWriter.getPosition();
+		};
+	}
+
+	/**
+	 * Reads a payload back out of an image on the heap with readBytes
+	 */
+	public static Workload readBytes(String layout, Integer depth, Integer width, Integer height, Integer payloadSize) throws Exception {
+		ImageReader start = new ImageReader(createImage(width, height, BufferedImage.TYPE_INT_RGB), PASSWORD, Layout.valueOf(layout), depth);
+		byte[] payload = new byte[payloadSize];
+		return () -> {
+			new ImageReader(start).readBytes(payload, 0, payload.length);
+			return payload[payload.length - 1];
+		};
+	}
+
+	/**
+	 * Reads a payload back out of an image on the heap a bit at a time with readBit
+	 */
+	public static Workload readBits(String layout, Integer depth, Integer width, Integer height, Integer payloadSize) throws Exception {
+		ImageReader start = new ImageReader(createImage(width, height, BufferedImage.TYPE_INT_RGB), PASSWORD, Layout.valueOf(layout), depth);
+		return () -> {
+			ImageReader imageReader = new ImageReader(start);
+			long sum = 0;
+			for (long i = (long) payloadSize * 8; i > 0; i--) {
+				sum += imageReader.readBit();
+			}
+			return sum;
+		};
+	}
+
+	/**
+	 * Runs the whole encoder from host image file to encoded image file
+	 */
+	public static Workload encode(File dir, String imageType, Integer width, Integer height, String layout, Integer depth, String codec, Integer payloadSize) throws Exception {
+		configure(layout, depth, codec);
+		File host = createHostFile(dir, imageType, width, height);
+		File stego = createStegoFile(dir, payloadSize);
+		File output = new File(dir, "encoded.bmp");
+		return () -> {
+			SegmentedEncoder encoder = new SegmentedEncoder(host.getPath(), stego.getPath(), PASSWORD);
+			try {
+				while (encoder.hasNext()) {
+					encoder.nextSegment();
+				}
+				encoder.getEncodedRaster().write(output);
+				return encoder.getEncodedBytes();
+			} finally {
+				encoder.close();
+			}
+		};
+	}
+
+	/**
+	 * Runs the whole decoder from encoded image file to stego file
+	 */
+	public static Workload decode(File dir, String imageType, Integer width, Integer height, String layout, Integer depth, String codec, Integer payloadSize) throws Exception {
+		encode(dir, imageType, width, height, layout, depth, codec, payloadSize).run(); // The image to decode
+		File encoded = new File(dir, "encoded.bmp");
+		File output = new File(dir, "decoded");
+		output.mkdirs();
+		return () -> {
+			SegmentedDecoder decoder = new SegmentedDecoder(encoded.getPath(), output.getPath(), PASSWORD);
+			try {
+				while (decoder.hasNext()) {
+					decoder.nextSegment();
+				}
+				return decoder.getDecodedBytes();
+			} finally {
+				decoder.close();
+			}
+		};
+	}
+
+	/**
+	 * Extracts every bit plane of an image on the heap
+	 */
+	public static Workload extractPlanes(Integer width, Integer height) {
+		HostRaster raster = new PackedRaster(createImage(width, height, BufferedImage.TYPE_INT_RGB));
+		return () -> new BitPlanes(raster).getPlane(0)[0];
+	}
+
+	/**
+	 * Counts the chunks of every bit plane of an image, with the planes extracted once
+	 */
+	public static Workload countPlanes(Integer width, Integer height, Integer tiles) {
+		BitPlanes planes = new BitPlanes(new PackedRaster(createImage(width, height, BufferedImage.TYPE_INT_RGB)));
+		TiledChunkCounter counter = new TiledChunkCounter(width, tiles);
+		return () -> {
+			long sum = 0;
+			for (int plane = 0; plane < BitPlanes.PLANES; plane++) {
+				for (int tile = 0; tile < tiles; tile++) {
+					counter.countTile(tile, planes.getPlane(plane), planes.getWordsPerRow(), planes.getHeight());
+				}
+				sum += counter.getChunkCount();
+			}
+			return sum;
+		};
+	}
+
+	private static void configure(String layout, int depth, String codec) {
+		Steganographer.setLayout(Layout.valueOf(layout));
+		Steganographer.setDepth(depth);
+		Steganographer.setCodec(Codec.valueOf(codec));
+	}
+
+	private static BufferedImage createImage(int width, int height, int type) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		Random random = new Random(width * 31 + height);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) { // A smooth gradient with noise in the low bits, like a photo
+			for (int x = 0; x < width; x++) {
+				int base = (x * 255 / width) << 16 | (y * 255 / height) << 8 | ((x + y) * 127 / (width + height));
+				row[x] = 0xFF000000 | (base ^ (random.nextInt() & 0x030303));
+			}
+			image.setRGB(0, y, width, 1, row, 0, width);
+		}
+		return image;
+	}
+
+	private static File createHostFile(File dir, String imageType, int width, int height) throws Exception {
+		File host;
+		if (imageType.equals("bmp")) {
+			host = new File(dir, "host.bmp");
+			ImageIO.write(createImage(width, height, BufferedImage.TYPE_3BYTE_BGR), "bmp", host);
+		} else if (imageType.equals("png")) {
+			host = new File(dir, "host.png");
+			ImageIO.write(createImage(width, height, BufferedImage.TYPE_3BYTE_BGR), "png", host);
+		} else if (imageType.equals("png-alpha")) {
+			host = new File(dir, "host.png");
+			ImageIO.write(createImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", host);
+		} else {
+			throw new IllegalArgumentException("Unknown image type: " + imageType);
+		}
+		return host;
+	}
+
+	private static File createStegoFile(File dir, int payloadSize) throws Exception {
+		File stego = new File(dir, "stego.bin");
+		Files.write(stego.toPath(), createPayload(payloadSize));
+		return stego;
+	}
+
+	private static byte[] createPayload(int payloadSize) {
+		byte[] payload = new byte[payloadSize];
+		new Random(payloadSize).nextBytes(payload);
+		return payload;
+	}
+
+	private static byte[][] createPayloads(int payloadSize) { // Two unrelated payloads, each differing from the other in about half of its bits
+		byte[] other = new byte[payloadSize];
+		new Random(~payloadSize).nextBytes(other);
+		return new byte[][] {createPayload(payloadSize), other};
+	}
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// By: Justin Spedding & Andrew Miller
+
+/**
+ * Measures the two halves of the analyzer: extracting the bit planes and counting the chunks in them
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AnalyzerBenchmark {
+
+	@Param({"512", "2048"})
+	public int size; // The width and height of the image
+
+	private Workload extractPlanes;
+
+	/**
+	 * The planes of an image counted in some number of tiles, which only the counting benchmark depends on
+	 */
+	@State(Scope.Thread)
+	public static class Counting {
+
+		@Param({"1", "4"})
+		public int tiles; // The number of tiles each plane is counted in
+
+		private Workload countPlanes;
+
+		@Setup
+		public void setup(AnalyzerBenchmark benchmark) throws Exception {
+			countPlanes = Workloads.create("countPlanes", benchmark.size, benchmark.size, tiles);
+		}
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		extractPlanes = Workloads.create("extractPlanes", size, size);
+	}
+
+	@Benchmark
+	public long extractPlanes(Throughput throughput) throws Exception {
+		throughput.add(3L * size * size); // Three bytes of color per pixel
+		return extractPlanes.run();
+	}
+
+	@Benchmark
+	public long countPlanes(Counting counting, Throughput throughput) throws Exception {
+		throughput.add(3L * size * size);
+		return counting.countPlanes.run();
+	}
+}
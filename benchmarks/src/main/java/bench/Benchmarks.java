@@ -0,0 +1,29 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// By: Justin Spedding & Andrew Miller
+
+public class Benchmarks {
+
+	/**
+	 * Runs the benchmarks like JMH's own main method, but always with the GC profiler so allocation rates are reported
+	 * Any JMH option can be given, for example a regular expression that picks the benchmarks to run.
+	 *
+	 * @param args
+	 * 			The JMH command line options
+	 * @throws Exception
+	 * 			Throws if the options are invalid or a benchmark fails
+	 */
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.shouldHelp() || options.shouldList() || options.shouldListProfilers() || options.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,80 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// By: Justin Spedding & Andrew Miller
+
+/**
+ * Measures writing and reading a payload through the image writer and reader, with no file IO
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BitBenchmark {
+
+	private static final int WIDTH = 1024;
+	private static final int HEIGHT = 1024;
+
+	@Param({"PIXEL_MAJOR", "KEYED", "SHUFFLED"})
+	public String layout;
+
+	@Param({"1", "4"})
+	public int depth;
+
+	@Param({"262144"})
+	public int payloadSize; // Capped at the capacity of the image
+
+	private int bytes; // The payload bytes moved by each operation
+	private Workload writeBytes;
+	private Workload writeBits;
+	private Workload readBytes;
+	private Workload readBits;
+
+	@Setup
+	public void setup() throws Exception {
+		bytes = Math.min(payloadSize, Workloads.getPayloadSize(WIDTH, HEIGHT, depth, 100));
+		writeBytes = Workloads.create("writeBytes", layout, depth, WIDTH, HEIGHT, bytes);
+		writeBits = Workloads.create("writeBits", layout, depth, WIDTH, HEIGHT, bytes);
+		readBytes = Workloads.create("readBytes", layout, depth, WIDTH, HEIGHT, bytes);
+		readBits = Workloads.create("readBits", layout, depth, WIDTH, HEIGHT, bytes);
+	}
+
+	@Benchmark
+	public long writeBytes(Throughput throughput) throws Exception {
+		throughput.add(bytes);
+		return writeBytes.run();
+	}
+
+	@Benchmark
+	public long writeBits(Throughput throughput) throws Exception {
+		throughput.add(bytes);
+		return writeBits.run();
+	}
+
+	@Benchmark
+	public long readBytes(Throughput throughput) throws Exception {
+		throughput.add(bytes);
+		return readBytes.run();
+	}
+
+	@Benchmark
+	public long readBits(Throughput throughput) throws Exception {
+		throughput.add(bytes);
+		return readBits.run();
+	}
+}
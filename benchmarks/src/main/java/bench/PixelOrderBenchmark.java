@@ -0,0 +1,54 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// By: Justin Spedding & Andrew Miller
+
+/**
+ * Measures generating pixel orders and looking up every pixel in one
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PixelOrderBenchmark {
+
+	@Param({"SHUFFLED", "KEYED"})
+	public String layout;
+
+	@Param({"65536", "1048576", "4194304"})
+	public int pixelCount;
+
+	private Workload create;
+	private Workload walk;
+
+	@Setup
+	public void setup() throws Exception {
+		create = Workloads.create("createPixelOrder", layout, pixelCount);
+		walk = Workloads.create("walkPixelOrder", layout, pixelCount);
+	}
+
+	@Benchmark
+	public long create() throws Exception {
+		return create.run();
+	}
+
+	@Benchmark
+	public long walk() throws Exception {
+		return walk.run();
+	}
+}
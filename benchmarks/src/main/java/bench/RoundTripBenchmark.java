@@ -0,0 +1,90 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// By: Justin Spedding & Andrew Miller
+
+/**
+ * Measures the whole encoder and decoder, from reading the host image file to writing the result
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RoundTripBenchmark {
+
+	@Param({"bmp", "png", "png-alpha"})
+	public String imageType;
+
+	@Param({"512x512", "2048x2048"})
+	public String size;
+
+	@Param({"PIXEL_MAJOR", "KEYED"})
+	public String layout;
+
+	@Param({"1"})
+	public int depth;
+
+	@Param({"NONE", "LZ"})
+	public String codec;
+
+	@Param({"50"})
+	public int percent; // How much of the image's capacity the payload takes up
+
+	private Path dir; // Holds the host, stego and output files
+	private int bytes; // The payload bytes moved by each operation
+	private Workload encode;
+	private Workload decode;
+
+	@Setup
+	public void setup() throws Exception {
+		int width = Integer.parseInt(size.substring(0, size.indexOf('x')));
+		int height = Integer.parseInt(size.substring(size.indexOf('x') + 1));
+		bytes = Workloads.getPayloadSize(width, height, depth, percent);
+		dir = Files.createTempDirectory("stego-bench");
+		File encodeDir = Files.createDirectory(dir.resolve("encode")).toFile();
+		File decodeDir = Files.createDirectory(dir.resolve("decode")).toFile();
+		encode = Workloads.create("encode", encodeDir, imageType, width, height, layout, depth, codec, bytes);
+		decode = Workloads.create("decode", decodeDir, imageType, width, height, layout, depth, codec, bytes);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public long encode(Throughput throughput) throws Exception {
+		throughput.add(bytes);
+		return encode.run();
+	}
+
+	@Benchmark
+	public long decode(Throughput throughput) throws Exception {
+		throughput.add(bytes);
+		return decode.run();
+	}
+}
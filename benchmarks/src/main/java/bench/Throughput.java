@@ -0,0 +1,34 @@
+package bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// By: Justin Spedding & Andrew Miller
+
+/**
+ * Counts the payload bytes a benchmark moves, which JMH reports as MB/s next to the usual ops/s
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+	public double megabytes; // Megabytes of payload moved in the current iteration
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		megabytes = 0;
+	}
+
+	/**
+	 * Adds the bytes moved by one operation
+	 *
+	 * @param bytes
+	 * 			The number of payload bytes
+	 */
+	public void add(long bytes) {
+		megabytes += bytes / 1e6;
+	}
+}
@@ -0,0 +1,20 @@
+package bench;
+
+// By: Justin Spedding & Andrew Miller
+
+/**
+ * One repetition of a piece of work being benchmarked
+ * The steganographer's classes are in the unnamed package, which classes in a package cannot refer to, so the
+ * benchmarks only see them through this interface.
+ */
+public interface Workload {
+
+	/**
+	 * Does the work once
+	 *
+	 * @return A value computed from the result, so the work cannot be optimized away
+	 * @throws Exception
+	 * 			Throws if the work fails
+	 */
+	long run() throws Exception;
+}
@@ -0,0 +1,51 @@
+package bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+// By: Justin Spedding & Andrew Miller
+
+public class Workloads {
+
+	/**
+	 * Creates a workload through one of the factory methods of the unnamed package's Targets class
+	 * Reflection is only used here, once per trial, so the measured calls go straight through the interface.
+	 *
+	 * @param name
+	 * 			The name of the factory method
+	 * @param args
+	 * 			The arguments of the factory method, none of which may be null
+	 * @return The workload
+	 * @throws Exception
+	 * 			Throws if the factory method fails
+	 */
+	public static Workload create(String name, Object... args) throws Exception {
+		for (Method method : Class.forName("Targets").getMethods()) {
+			if (method.getName().equals(name) && method.getParameterCount() == args.length) {
+				try {
+					return (Workload) method.invoke(null, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+		}
+		throw new NoSuchMethodException("Targets." + name);
+	}
+
+	/**
+	 * Returns the number of bytes a workload stores in or reads from an image on each run
+	 *
+	 * @param width
+	 * 			The width of the image
+	 * @param height
+	 * 			The height of the image
+	 * @param depth
+	 * 			The number of least significant bits of each color used
+	 * @param percent
+	 * 			How much of the image's capacity is used, from 1 to 100
+	 * @return The number of payload bytes
+	 */
+	public static int getPayloadSize(int width, int height, int depth, int percent) {
+		return (int) Math.max(1, (long) width * height * 3 * depth / 8 * percent / 100 - 1024); // Room for the header
+	}
+}
@@ -0,0 +1,171 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// By: Justin Spedding & Andrew Miller
+
+public class HostRasterTest {
+
+	private static final int WIDTH = 700; // Not a whole number of tiles either way
+	private static final int HEIGHT = 530;
+
+	@TempDir
+	Path dir; // Holds the images
+
+	private long offHeapPixels; // The settings before the test, put back after it
+	private long tileCacheSize;
+
+	@BeforeEach
+	public void saveSettings() {
+		offHeapPixels = HostRaster.getOffHeapPixels();
+		tileCacheSize = HostRaster.getTileCacheSize();
+	}
+
+	@AfterEach
+	public void restoreSettings() {
+		HostRaster.setOffHeapPixels(offHeapPixels);
+		HostRaster.setTileCacheSize(tileCacheSize);
+	}
+
+	@ParameterizedTest
+	@ValueSource(classes = {PackedRaster.class, OffHeapRaster.class, TiledRaster.class})
+	public void readPixels(Class<?> type) throws Exception {
+		BufferedImage image = createImage();
+		File file = dir.resolve("host.png").toFile();
+		ImageIO.write(image, "png", file);
+		HostRaster raster = read(file, type);
+		try {
+			assertEquals(WIDTH, raster.getWidth());
+			assertEquals(HEIGHT, raster.getHeight());
+			int[] rgbRow = new int[WIDTH];
+			for (int y = 0; y < HEIGHT; y++) {
+				raster.getRow(y, rgbRow);
+				for (int x = 0; x < WIDTH; x++) {
+					assertEquals(image.getRGB(x, y) & 0xFFFFFF, rgbRow[x] & 0xFFFFFF);
+				}
+			}
+			Random random = new Random(2);
+			for (int i = 0; i < 10000; i++) { // Jump between tiles, so a small tile cache has to spill them
+				long pixel = (long) (random.nextDouble() * WIDTH * HEIGHT);
+				assertEquals(image.getRGB((int) (pixel % WIDTH), (int) (pixel / WIDTH)) & 0xFFFFFF, raster.getPixel(pixel) & 0xFFFFFF);
+			}
+		} finally {
+			raster.close();
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(classes = {PackedRaster.class, OffHeapRaster.class, TiledRaster.class})
+	public void writePixels(Class<?> type) throws Exception {
+		File file = dir.resolve("host.png").toFile();
+		ImageIO.write(createImage(), "png", file);
+		HostRaster raster = read(file, type);
+		BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		File written = dir.resolve("written.bmp").toFile();
+		try {
+			Random random = new Random(3);
+			int[] rgbRow = new int[WIDTH];
+			for (int y = 0; y < HEIGHT; y++) {
+				for (int x = 0; x < WIDTH; x++) {
+					rgbRow[x] = random.nextInt() & 0xFFFFFF;
+				}
+				raster.setRow(y, rgbRow);
+				expected.setRGB(0, y, WIDTH, 1, rgbRow, 0, WIDTH);
+			}
+			for (int i = 0; i < 10000; i++) {
+				long pixel = (long) (random.nextDouble() * WIDTH * HEIGHT);
+				int rgb = random.nextInt() & 0xFFFFFF;
+				raster.setPixel(pixel, rgb);
+				expected.setRGB((int) (pixel % WIDTH), (int) (pixel / WIDTH), rgb);
+			}
+			raster.write(written);
+		} finally {
+			raster.close();
+		}
+		BufferedImage actual = ImageIO.read(written);
+		assertNotNull(actual);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				assertEquals(expected.getRGB(x, y) & 0xFFFFFF, actual.getRGB(x, y) & 0xFFFFFF);
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(classes = {PackedRaster.class, OffHeapRaster.class, TiledRaster.class})
+	public void encodeThenDecode(Class<?> type) throws Exception {
+		File host = dir.resolve("host.png").toFile();
+		ImageIO.write(createImage(), "png", host);
+		byte[] payload = new byte[20000];
+		new Random(4).nextBytes(payload);
+		File stego = dir.resolve("secret.bin").toFile();
+		Files.write(stego.toPath(), payload);
+		configure(type);
+		SegmentedEncoder encoder = new SegmentedEncoder(host.getPath(), stego.getPath(), "password");
+		File encoded = dir.resolve("encoded.bmp").toFile();
+		try {
+			assertEquals(type, encoder.getEncodedRaster().getClass());
+			if (type != PackedRaster.class) {
+				assertNull(encoder.getEncodedImage()); // Never held as a whole BufferedImage
+			}
+			while (encoder.hasNext()) {
+				encoder.nextSegment();
+			}
+			encoder.getEncodedRaster().write(encoded);
+		} finally {
+			encoder.close();
+		}
+		File outputDir = Files.createDirectory(dir.resolve("decoded")).toFile();
+		SegmentedDecoder decoder = new SegmentedDecoder(encoded.getPath(), outputDir.getPath(), "password");
+		try {
+			while (decoder.hasNext()) {
+				decoder.nextSegment();
+			}
+		} finally {
+			decoder.close();
+		}
+		assertArrayEquals(payload, Files.readAllBytes(new File(outputDir, "secret.bin").toPath()));
+	}
+
+	private static HostRaster read(File file, Class<?> type) throws Exception {
+		configure(type);
+		HostRaster raster = HostRaster.read(file);
+		assertEquals(type, raster.getClass());
+		return raster;
+	}
+
+	private static void configure(Class<?> type) {
+		if (type == PackedRaster.class) {
+			HostRaster.setOffHeapPixels(Long.MAX_VALUE);
+		} else {
+			HostRaster.setOffHeapPixels(0);
+			HostRaster.setTileCacheSize(type == TiledRaster.class ? 4 * 256 * 256 * 4 : 0); // Four tiles, fewer than the image has
+		}
+	}
+
+	private static BufferedImage createImage() {
+		Random random = new Random(1);
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		return image;
+	}
+}
@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+// By: Justin Spedding & Andrew Miller
+
+public class JobSchedulerTest {
+
+	@Test
+	public void waitingJobDoesNotHoldAThread() throws Exception {
+		JobScheduler scheduler = new JobScheduler(2, 100);
+		CountDownLatch release = new CountDownLatch(1);
+		FutureTask<Void> big = task(release);
+		FutureTask<Void> bigger = task(release);
+		FutureTask<Void> small = task(null);
+		scheduler.submit(big, JobScheduler.PRIORITY_NORMAL, 80);
+		scheduler.submit(bigger, JobScheduler.PRIORITY_NORMAL, 80); // Does not fit until the first one is done
+		scheduler.submit(small, JobScheduler.PRIORITY_HIGH, 10);
+		small.get(5, TimeUnit.SECONDS); // Runs on the second thread instead of queueing behind the job waiting for memory
+		waitForActiveJobs(scheduler, 1);
+		assertEquals(1, scheduler.getActiveJobCount());
+		assertEquals(1, scheduler.getQueuedJobCount());
+		assertFalse(bigger.isDone());
+		release.countDown();
+		big.get(5, TimeUnit.SECONDS);
+		bigger.get(5, TimeUnit.SECONDS);
+		waitForActiveJobs(scheduler, 0);
+		assertEquals(0, scheduler.getReservedMemory());
+	}
+
+	@Test
+	public void higherPriorityRunsFirst() throws Exception {
+		JobScheduler scheduler = new JobScheduler(1, 100);
+		CountDownLatch release = new CountDownLatch(1);
+		StringBuffer order = new StringBuffer();
+		scheduler.submit(task(release), JobScheduler.PRIORITY_NORMAL, 10);
+		FutureTask<Void> low = new FutureTask<Void>(() -> order.append("low"), null);
+		FutureTask<Void> high = new FutureTask<Void>(() -> order.append("high"), null);
+		scheduler.submit(low, JobScheduler.PRIORITY_LOW, 10);
+		scheduler.submit(high, JobScheduler.PRIORITY_HIGH, 10);
+		release.countDown();
+		low.get(5, TimeUnit.SECONDS);
+		assertEquals("highlow", order.toString());
+	}
+
+	@Test
+	public void cancelledJobLetsTheNextOneRun() throws Exception {
+		JobScheduler scheduler = new JobScheduler(2, 100);
+		CountDownLatch release = new CountDownLatch(1);
+		scheduler.submit(task(release), JobScheduler.PRIORITY_NORMAL, 60);
+		JobScheduler.Job waiting = scheduler.submit(task(null), JobScheduler.PRIORITY_HIGH, 60);
+		FutureTask<Void> next = task(null);
+		scheduler.submit(next, JobScheduler.PRIORITY_NORMAL, 30);
+		assertFalse(next.isDone()); // Waits behind the higher priority job that does not fit yet
+		assertTrue(waiting.cancel());
+		next.get(5, TimeUnit.SECONDS);
+		release.countDown();
+	}
+
+	@Test
+	public void jobBiggerThanBudgetIsRejected() {
+		JobScheduler scheduler = new JobScheduler(1, 100);
+		assertThrows(InsufficientMemoryException.class, () -> scheduler.submit(task(null), JobScheduler.PRIORITY_NORMAL, 101));
+	}
+
+	private static FutureTask<Void> task(CountDownLatch release) {
+		return new FutureTask<Void>(() -> {
+			if (release != null) {
+				release.await();
+			}
+			return null;
+		});
+	}
+
+	private static void waitForActiveJobs(JobScheduler scheduler, int activeJobs) throws InterruptedException {
+		for (int i = 0; i < 500 && scheduler.getActiveJobCount() > activeJobs; i++) { // A job is released just after its task finishes
+			Thread.sleep(10);
+		}
+	}
+}
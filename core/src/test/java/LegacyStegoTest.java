@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// By: Justin Spedding & Andrew Miller
+
+public class LegacyStegoTest {
+
+	@TempDir
+	Path dir; // Where the stego is decoded to
+
+	@Test
+	public void probe() throws Exception {
+		HostRaster raster = HostRaster.read(getResource("legacy-v0.7.bmp"));
+		try {
+			StegoHeader header = Steganographer.probe(raster, "password");
+			assertNotNull(header);
+			assertEquals(StegoHeader.LEGACY_FORMAT, header.getFormat());
+			assertEquals(Layout.SHUFFLED, header.getLayout()); // All v0.7 could write
+			assertEquals(Steganographer.MAX_DEPTH, header.getDepth());
+			assertEquals(Codec.NONE, header.getCodec());
+			assertEquals("secret.txt", header.getFileName());
+			assertEquals(getResource("secret.txt").length(), header.getFileSize());
+			assertNull(Steganographer.probe(raster, "wrong password"));
+		} finally {
+			raster.close();
+		}
+	}
+
+	@Test
+	public void decode() throws Exception {
+		SegmentedDecoder decoder = new SegmentedDecoder(getResource("legacy-v0.7.bmp").getPath(), dir.toString(), "password"); // Hidden by v0.7 with its only layout and depth
+		try {
+			while (decoder.hasNext()) {
+				decoder.nextSegment();
+			}
+		} finally {
+			decoder.close();
+		}
+		assertArrayEquals(Files.readAllBytes(getResource("secret.txt").toPath()), Files.readAllBytes(dir.resolve("secret.txt")));
+	}
+
+	private static File getResource(String name) throws Exception {
+		return Paths.get(LegacyStegoTest.class.getResource("/" + name).toURI()).toFile();
+	}
+}
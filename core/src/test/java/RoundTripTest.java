@@ -0,0 +1,157 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+// By: Justin Spedding & Andrew Miller
+
+public class RoundTripTest {
+
+	private static final String PASSWORD = "password";
+
+	@TempDir
+	Path dir; // Holds the host image, the stego and everything made from them
+
+	@AfterEach
+	public void restoreSettings() {
+		Steganographer.setLayout(Layout.KEYED);
+		Steganographer.setDepth(Steganographer.MAX_DEPTH);
+		Steganographer.setCodec(Codec.NONE);
+	}
+
+	static Stream<Arguments> settings() {
+		return Stream.of(Layout.values()).flatMap(layout -> IntStream.rangeClosed(1, Steganographer.MAX_DEPTH).boxed()
+				.flatMap(depth -> Stream.of(Codec.values()).map(codec -> Arguments.of(layout, depth, codec))));
+	}
+
+	@ParameterizedTest
+	@MethodSource("settings")
+	public void encodeThenDecode(Layout layout, int depth, Codec codec) throws Exception {
+		File host = createHost(120, 90);
+		byte[] payload = createPayload(1500);
+		File stego = dir.resolve("secret.bin").toFile();
+		Files.write(stego.toPath(), payload);
+		Steganographer.setLayout(layout);
+		Steganographer.setDepth(depth);
+		Steganographer.setCodec(codec);
+		File encoded = encode(host, stego);
+
+		HostRaster raster = HostRaster.read(encoded);
+		try {
+			StegoHeader header = Steganographer.probe(raster, PASSWORD);
+			assertNotNull(header);
+			assertEquals(layout, header.getLayout());
+			assertEquals(depth, header.getDepth());
+			assertEquals(codec, header.getCodec());
+			assertEquals("secret.bin", header.getFileName());
+			assertEquals(payload.length, header.getFileSize());
+			assertNull(Steganographer.probe(raster, "wrong " + PASSWORD));
+		} finally {
+			raster.close();
+		}
+		assertArrayEquals(payload, decode(encoded, "secret.bin"));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Layout.class)
+	public void oddPixelCount(Layout layout) throws Exception {
+		File host = createHost(211, 201); // The passes after the first do not start on a whole byte
+		byte[] payload = new byte[60000]; // Big enough to be split between threads
+		new Random(5).nextBytes(payload);
+		File stego = dir.resolve("secret.bin").toFile();
+		Files.write(stego.toPath(), payload);
+		Steganographer.setLayout(layout);
+		assertArrayEquals(payload, decode(encode(host, stego), "secret.bin"));
+	}
+
+	@Test
+	public void stegoTooBigToCompress() throws Exception {
+		File host = createHost(40, 40);
+		byte[] payload = new byte[10000];
+		new Random(1).nextBytes(payload); // Does not compress, and is bigger than the image holds
+		File stego = dir.resolve("secret.bin").toFile();
+		Files.write(stego.toPath(), payload);
+		Steganographer.setCodec(Codec.NONE);
+		assertThrows(CannotEncodeException.class, () -> encode(host, stego));
+		Steganographer.setCodec(Codec.DEFLATE);
+		assertThrows(CannotEncodeException.class, () -> encode(host, stego)); // Only found once the image runs out of pixels
+	}
+
+	@Test
+	public void compressedStegoBiggerThanImage() throws Exception {
+		File host = createHost(40, 40);
+		byte[] payload = new byte[10000]; // Bigger than the image holds, but compresses to almost nothing
+		File stego = dir.resolve("secret.bin").toFile();
+		Files.write(stego.toPath(), payload);
+		Steganographer.setCodec(Codec.DEFLATE);
+		assertArrayEquals(payload, decode(encode(host, stego), "secret.bin"));
+	}
+
+	private File createHost(int width, int height) throws Exception {
+		Random random = new Random(width * 31 + height);
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		File host = dir.resolve("host.png").toFile();
+		ImageIO.write(image, "png", host);
+		return host;
+	}
+
+	private static byte[] createPayload(int size) {
+		Random random = new Random(size);
+		byte[] payload = new byte[size];
+		for (int i = 0; i < size; i++) {
+			payload[i] = (byte) (i % 5 == 0 ? random.nextInt() : 'a' + i % 11); // Partly compressible
+		}
+		return payload;
+	}
+
+	private File encode(File host, File stego) throws Exception {
+		SegmentedEncoder encoder = new SegmentedEncoder(host.getPath(), stego.getPath(), PASSWORD);
+		try {
+			while (encoder.hasNext()) {
+				encoder.nextSegment();
+			}
+			File encoded = dir.resolve("encoded.bmp").toFile();
+			encoder.getEncodedRaster().write(encoded);
+			return encoded;
+		} finally {
+			encoder.close();
+		}
+	}
+
+	private byte[] decode(File encoded, String fileName) throws Exception {
+		File outputDir = Files.createTempDirectory(dir, "decoded").toFile();
+		SegmentedDecoder decoder = new SegmentedDecoder(encoded.getPath(), outputDir.getPath(), PASSWORD);
+		try {
+			while (decoder.hasNext()) {
+				decoder.nextSegment();
+			}
+		} finally {
+			decoder.close();
+		}
+		return Files.readAllBytes(new File(outputDir, fileName).toPath());
+	}
+}
@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+// By: Justin Spedding & Andrew Miller
+
+public class SegmentedAnalyzerTest {
+
+	private static ForkJoinPool pool = new ForkJoinPool(4); // Enough threads to split planes into tiles even on one core
+
+	@TempDir
+	Path dir; // Holds the host image
+
+	@AfterAll
+	public static void shutdown() {
+		pool.shutdown();
+	}
+
+	@ParameterizedTest
+	@CsvSource({"1, 1", "1, 130", "130, 1", "63, 65", "64, 64", "65, 300", "517, 333", "129, 700"})
+	public void matchesFloodFill(int width, int height) throws Exception {
+		BufferedImage image = createImage(width, height);
+		File host = dir.resolve("host.png").toFile();
+		ImageIO.write(image, "png", host);
+		SegmentedAnalyzer sequential = analyze(new SegmentedAnalyzer(host.getPath()));
+		SegmentedAnalyzer pooled = analyze(new SegmentedAnalyzer(host.getPath(), pool, Long.MAX_VALUE)); // Tall images are counted in several tiles
+		for (int color = 0; color < 3; color++) {
+			for (int bit = 0; bit < 7; bit++) {
+				int expected = countChunks(image, color * 8 + bit);
+				assertEquals(expected, sequential.getChunkCount(color, bit), "color " + color + ", bit " + bit);
+				assertEquals(expected, pooled.getChunkCount(color, bit), "color " + color + ", bit " + bit);
+			}
+		}
+		assertEquals(sequential.getValue(), pooled.getValue());
+	}
+
+	private static SegmentedAnalyzer analyze(SegmentedAnalyzer analyzer) throws Exception {
+		while (analyzer.hasNext()) {
+			analyzer.nextSegment();
+		}
+		return analyzer;
+	}
+
+	private static int countChunks(BufferedImage image, int shift) { // The flood fill the analyzer started out with
+		int width = image.getWidth();
+		int height = image.getHeight();
+		boolean[] checked = new boolean[width * height];
+		ArrayDeque<Integer> stack = new ArrayDeque<Integer>();
+		int chunks = 0;
+		for (int start = 0; start < width * height; start++) {
+			if (checked[start]) {
+				continue;
+			}
+			chunks++;
+			int base = getBit(image, start, shift);
+			checked[start] = true;
+			stack.push(start);
+			while (!stack.isEmpty()) {
+				int pixel = stack.pop();
+				int x = pixel % width;
+				int y = pixel / width;
+				int[] neighbors = {x > 0 ? pixel - 1 : -1, x < width - 1 ? pixel + 1 : -1, y > 0 ? pixel - width : -1, y < height - 1 ? pixel + width : -1};
+				for (int neighbor : neighbors) {
+					if (neighbor >= 0 && !checked[neighbor] && getBit(image, neighbor, shift) == base) {
+						checked[neighbor] = true;
+						stack.push(neighbor);
+					}
+				}
+			}
+		}
+		return chunks;
+	}
+
+	private static int getBit(BufferedImage image, int pixel, int shift) {
+		return (image.getRGB(pixel % image.getWidth(), pixel / image.getWidth()) >> shift) & 1;
+	}
+
+	private static BufferedImage createImage(int width, int height) { // Smooth blobs for the high bits and noise for the low ones
+		Random random = new Random(width * 1000 + height);
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int smooth = (int) (127.5 + 60 * Math.sin(x / 9.0) + 60 * Math.cos(y / 13.0 + x / 31.0)) & 0xF0;
+				int noise = random.nextInt() & 0x0F0F0F;
+				image.setRGB(x, y, (smooth << 16 | smooth << 8 | smooth) ^ noise);
+			}
+		}
+		return image;
+	}
+}
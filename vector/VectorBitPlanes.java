@@ -0,0 +1,48 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// By: Justin Spedding & Andrew Miller
+
+public class VectorBitPlanes implements BitPlanes.Kernel {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED; // The widest vectors the CPU has
+
+	private int[] shifts; // How far each plane's bit is shifted within a packed RGB int
+	private IntVector laneIndexes; // 0, 1, 2... so each lane can move its bit to its own place in a word
+
+	/**
+	 * Constructs a kernel that extracts the bit of a plane from a whole vector of pixels at once
+	 * It is only built by the vector profile, and BitPlanes falls back to its scalar kernel when it cannot be made.
+	 *
+	 * @throws UnsupportedOperationException
+	 * 			Throws if the CPU's vectors are too narrow to beat the scalar kernel
+	 */
+	public VectorBitPlanes() {
+		if (SPECIES.length() < 4) {
+			throw new UnsupportedOperationException();
+		}
+		shifts = new int[BitPlanes.PLANES];
+		for (int plane = 0; plane < shifts.length; plane++) {
+			shifts[plane] = BitPlanes.getShift(plane);
+		}
+		laneIndexes = IntVector.zero(SPECIES).addIndex(1);
+	}
+
+	public void extractRow(int[] rgbRow, int words, long[][] planes, int index) {
+		int lanes = SPECIES.length(); // A power of 2 from 4 to 16, so half a word is a whole number of vectors
+		for (int word = 0; word < words; word++) {
+			for (int half = 0; half < 64; half += 32) { // 32 bits fit in an int lane
+				int start = word * 64 + half;
+				for (int plane = 0; plane < shifts.length; plane++) {
+					int shift = shifts[plane];
+					IntVector bits = IntVector.zero(SPECIES);
+					for (int i = 0; i < 32; i += lanes) { // Move the bit of pixel i + lane to bit i + lane
+						bits = bits.or(IntVector.fromArray(SPECIES, rgbRow, start + i).lanewise(VectorOperators.LSHR, shift).and(1).lanewise(VectorOperators.LSHL, laneIndexes.add(i)));
+					}
+					planes[plane][index + word] |= (bits.reduceLanes(VectorOperators.OR) & 0xFFFFFFFFL) << half;
+				}
+			}
+		}
+	}
+}